@@ -0,0 +1,49 @@
+package de.alexanderlindhorst.sonaranalysiscore;
+
+import org.openide.filesystems.FileObject;
+
+/**
+ * A tool auditing the Java files open in an editor and annotating its findings, registered as
+ * {@code @ServiceProvider(service = Analyzer.class)}. The core watches the editors and files and calls its analyzers;
+ * all of them share one request processor, so audits of different tools never compete for more threads than the core
+ * hands out.
+ *
+ * @author alindhorst
+ */
+public interface Analyzer {
+
+    /**
+     * The file has been opened in an editor. Called on the event dispatch thread before the file's first audit, so
+     * it must only prepare the file's bookkeeping.
+     */
+    void fileOpened(FileObject fileObject);
+
+    /**
+     * Audits the file's content as read by the core and updates its annotations. Called on the core's request
+     * processor, in parallel to the other analyzers auditing the same snapshot; the thread may be interrupted if the
+     * file changes while it's being audited, the result is outdated then.
+     */
+    void analyze(SourceSnapshot snapshot);
+
+    /**
+     * The file's editor has been closed, its annotations have to be removed. Called on the event dispatch thread.
+     */
+    void fileClosed(FileObject fileObject);
+
+    /**
+     * The file has changed, any audit of it that's currently running is outdated. Called on whatever thread noticed
+     * the change, so it must return right away.
+     */
+    void invalidateResultsFor(FileObject fileObject);
+
+    /**
+     * @return whether the file is to be audited while being edited rather than only when saved
+     */
+    boolean isLiveAuditEnabled();
+
+    /**
+     * @return the configuration the analyzer audits with, e.g. its rule set, {@code null} for its default one; an
+     * activated editor's file is only audited again if its content or the analyzers' configurations have changed
+     */
+    String getConfiguration();
+}
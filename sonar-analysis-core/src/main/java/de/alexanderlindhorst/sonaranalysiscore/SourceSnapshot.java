@@ -0,0 +1,70 @@
+package de.alexanderlindhorst.sonaranalysiscore;
+
+import java.nio.charset.Charset;
+
+import org.openide.filesystems.FileObject;
+
+/**
+ * The content of a file as read once by the core and handed to all analyzers, so a save doesn't make each of them read
+ * and decode the file again.
+ *
+ * @author alindhorst
+ */
+public final class SourceSnapshot {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final FileObject fileObject;
+    private final String text;
+    private final boolean live;
+    private byte[] bytes;
+
+    public SourceSnapshot(FileObject fileObject, String text) {
+        this(fileObject, text, false);
+    }
+
+    /**
+     * @param live whether the snapshot was taken for a live audit while the file is being edited
+     */
+    public SourceSnapshot(FileObject fileObject, String text, boolean live) {
+        this.fileObject = fileObject;
+        this.text = text;
+        this.live = live;
+    }
+
+    public FileObject getFileObject() {
+        return fileObject;
+    }
+
+    /**
+     * @return the text of the file's editor including any unsaved changes, or the file's content if it isn't being
+     * edited
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return whether the snapshot was taken for a live audit, i.e. its text is likely to be incomplete and won't be
+     * seen again once typing goes on; its results aren't worth keeping beyond the session and failing to parse it is
+     * to be expected
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    /**
+     * @return the text encoded as UTF-8, e.g. to key results by; encoded once for all analyzers. Callers must not
+     * modify the array.
+     */
+    public synchronized byte[] getBytes() {
+        if (bytes == null) {
+            bytes = text.getBytes(UTF_8);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceSnapshot{" + "fileObject=" + fileObject + ", length=" + text.length() + ", live=" + live + '}';
+    }
+}
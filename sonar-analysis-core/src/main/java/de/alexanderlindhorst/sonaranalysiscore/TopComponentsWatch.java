@@ -1,4 +1,4 @@
-package de.alexanderlindhorst.sonarcheckstyle.plugin;
+package de.alexanderlindhorst.sonaranalysiscore;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -9,24 +9,21 @@ import org.openide.windows.WindowManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.alexanderlindhorst.sonarcheckstyle.plugin.util.FileWatch;
-
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.OpenJavaSourceRegistry.isKnownTopComponent;
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstylePluginUtils.getUnderlyingFile;
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstylePluginUtils.isJavaTopComponent;
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstylePluginUtils.processAnnotationsFor;
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstylePluginUtils.removeAnnotationsFor;
+import static de.alexanderlindhorst.sonaranalysiscore.util.OpenJavaSourceRegistry.isKnownTopComponent;
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.isJavaTopComponent;
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.processAnnotationsFor;
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.refreshAnnotationsFor;
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.removeAnnotationsFor;
 
 /**
  * Hooks itself up with WindowManager upon module start and registers listeners. Thus, will be notified of any change in
- * open windows.
+ * open windows. There's one listener for all analyzers.
  */
 @OnShowing
 public class TopComponentsWatch implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TopComponentsWatch.class);
     private static final TopComponentPropertyChangeListener LISTENER = new TopComponentPropertyChangeListener();
-    private static final FileWatch FILE_WATCH = new FileWatch();
 
     /**
      * Hooks up the listener with the registry in a different thread
@@ -45,6 +42,8 @@ public class TopComponentsWatch implements Runnable {
             EventMode eventMode = EventMode.findByEventNameValue(evt.getPropertyName());
             switch (eventMode) {
                 case ACTIVATED:
+                    checkComponent(evt);
+                    break;
                 case OPEN:
                     hookUpComponent(evt);
                     break;
@@ -59,14 +58,29 @@ public class TopComponentsWatch implements Runnable {
             }
         }
 
+        /**
+         * Activating an editor that's already known only checks whether its annotations are up to date; editors opened
+         * before the module was started are first seen when activated, they're hooked up then.
+         */
+        private void checkComponent(PropertyChangeEvent evt) {
+            if (evt.getNewValue() == null) {
+                return;
+            }
+            TopComponent topComponent = (TopComponent) evt.getNewValue();
+            if (isKnownTopComponent(topComponent)) {
+                refreshAnnotationsFor(topComponent);
+            } else {
+                hookUpComponent(evt);
+            }
+        }
+
         private void hookUpComponent(PropertyChangeEvent evt) {
             if (evt.getNewValue() == null) {
                 return;
             }
             TopComponent topComponent = (TopComponent) evt.getNewValue();
             LOGGER.debug("hookUpComponent called for {}", ((TopComponent) evt.getNewValue()).getDisplayName());
-            if (isJavaTopComponent(topComponent) && !isKnownTopComponent(topComponent)) {
-                getUnderlyingFile(topComponent).addFileChangeListener(FILE_WATCH);
+            if (!isKnownTopComponent(topComponent) && isJavaTopComponent(topComponent)) {
                 processAnnotationsFor(topComponent);
             } else {
                 LOGGER.debug("Hook up not applicable to {}", topComponent.getDisplayName());
@@ -76,8 +90,7 @@ public class TopComponentsWatch implements Runnable {
         private void releaseComponent(PropertyChangeEvent evt) {
             LOGGER.debug("releaseComponent called for {}", ((TopComponent) evt.getNewValue()).getDisplayName());
             TopComponent topComponent = (TopComponent) evt.getNewValue();
-            if (isJavaTopComponent(topComponent) && isKnownTopComponent(topComponent)) {
-                getUnderlyingFile(topComponent).removeFileChangeListener(FILE_WATCH);
+            if (isKnownTopComponent(topComponent)) {
                 removeAnnotationsFor(topComponent);
             } else {
                 LOGGER.debug("releaseComponent not applicable to {}", topComponent.getDisplayName());
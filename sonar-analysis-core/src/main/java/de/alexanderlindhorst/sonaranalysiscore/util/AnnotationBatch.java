@@ -0,0 +1,123 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JEditorPane;
+
+import org.openide.cookies.EditorCookie;
+import org.openide.filesystems.FileObject;
+import org.openide.loaders.DataObject;
+import org.openide.loaders.DataObjectNotFoundException;
+import org.openide.text.Annotation;
+import org.openide.text.Line;
+import org.openide.util.Mutex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.alexanderlindhorst.sonarplugincommons.AnnotationDiff;
+import de.alexanderlindhorst.sonarplugincommons.AnnotationSet;
+import de.alexanderlindhorst.sonarplugincommons.ViolationKey;
+
+/**
+ * Applies all annotation changes resulting from one audit of a file in a single task on the event dispatch thread,
+ * followed by a single repaint of the file's editors. As the diff is computed in that task as well, batches of
+ * consecutive audits never work on stale annotations. The file's annotation set is swapped as a whole once the batch
+ * is done; if it has been cleared by another thread in the meantime, the annotations attached by the batch are
+ * detached again rather than being lost to the registry.
+ *
+ * @author alindhorst
+ */
+public abstract class AnnotationBatch<A extends Annotation> implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationBatch.class);
+    private final FileObject fileObject;
+    private final AnnotationSet<A> annotations;
+    private final Collection<ViolationKey> found;
+    private final Line.Set lineSet;
+
+    /**
+     * @param annotations the annotations currently attached to the file, updated when the batch is applied
+     * @param found keys of the violations found by the audit
+     * @param lineSet the file's lines, may only be null if nothing was found
+     */
+    protected AnnotationBatch(FileObject fileObject, AnnotationSet<A> annotations, Collection<ViolationKey> found,
+            Line.Set lineSet) {
+        this.fileObject = fileObject;
+        this.annotations = annotations;
+        this.found = found;
+        this.lineSet = lineSet;
+    }
+
+    /**
+     * @return whether the batch still applies when it's its turn, e.g. false if the file has been closed or audited
+     * again in the meantime
+     */
+    protected abstract boolean isApplicable();
+
+    protected abstract A createAnnotation(ViolationKey key);
+
+    public void applyOnEventThread() {
+        Mutex.EVENT.writeAccess(this);
+    }
+
+    @Override
+    public void run() {
+        if (!isApplicable()) {
+            LOGGER.debug("Annotations of {} were updated or removed in the meantime, dropping batch", fileObject);
+            return;
+        }
+        long start = System.nanoTime();
+        Map<ViolationKey, A> current = annotations.get();
+        AnnotationDiff<A> diff = AnnotationDiff.between(current, found);
+        if (diff.isEmpty()) {
+            LOGGER.debug("{}: annotations unchanged", fileObject);
+            return;
+        }
+        for (A annotation : diff.getObsolete()) {
+            annotation.detach();
+        }
+        Map<ViolationKey, A> updated = Maps.newLinkedHashMap(diff.getKept());
+        List<A> attached = Lists.newArrayListWithCapacity(diff.getAdded().size());
+        for (ViolationKey key : diff.getAdded()) {
+            int targetIndex = key.getLine() - 1;
+            if (targetIndex < 0) {
+                targetIndex = 0;
+            }
+            A annotation = createAnnotation(key);
+            annotation.attach(lineSet.getCurrent(targetIndex));
+            updated.put(key, annotation);
+            attached.add(annotation);
+        }
+        if (!annotations.swap(current, updated)) {
+            LOGGER.debug("Annotations of {} were cleared while updating them, detaching new ones", fileObject);
+            for (A annotation : attached) {
+                annotation.detach();
+            }
+        }
+        repaintEditorsOf(fileObject);
+        LOGGER.debug("{}: kept {} annotations, detached {}, attached {} in {} ms", fileObject, diff.getKept().size(),
+                diff.getObsolete().size(), diff.getAdded().size(), (System.nanoTime() - start) / 1000000);
+    }
+
+    private static void repaintEditorsOf(FileObject fileObject) {
+        EditorCookie editorCookie;
+        try {
+            editorCookie = DataObject.find(fileObject).getLookup().lookup(EditorCookie.class);
+        } catch (DataObjectNotFoundException ex) {
+            LOGGER.debug("{} is gone, nothing to repaint", fileObject);
+            return;
+        }
+        JEditorPane[] panes = editorCookie == null ? null : editorCookie.getOpenedPanes();
+        if (panes == null) {
+            return;
+        }
+        for (JEditorPane pane : panes) {
+            pane.repaint();
+        }
+    }
+}
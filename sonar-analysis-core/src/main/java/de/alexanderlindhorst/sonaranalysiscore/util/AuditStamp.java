@@ -0,0 +1,80 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.openide.filesystems.FileObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.alexanderlindhorst.sonaranalysiscore.Analyzer;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+import de.alexanderlindhorst.sonarplugincommons.Digests;
+
+/**
+ * What a file's last complete audit was based on: the file's modification time, its content and the configurations
+ * of the analyzers. Lets an activated editor tell cheaply whether its annotations are still up to date.
+ *
+ * @author alindhorst
+ */
+final class AuditStamp {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditStamp.class);
+    private final long lastModified;
+    private final String contentDigest;
+    private final String configurationDigest;
+
+    private AuditStamp(long lastModified, String contentDigest, String configurationDigest) {
+        this.lastModified = lastModified;
+        this.contentDigest = contentDigest;
+        this.configurationDigest = configurationDigest;
+    }
+
+    /**
+     * @param lastModified modification time of the file taken before the snapshot was read, so a save while
+     * reading makes the stamp outdated rather than hiding the save
+     */
+    static AuditStamp of(SourceSnapshot snapshot, long lastModified, Collection<? extends Analyzer> analyzers) {
+        return new AuditStamp(lastModified, Digests.digest(snapshot.getBytes()), digestConfigurations(analyzers));
+    }
+
+    /**
+     * Compares the cheap properties first: the content is only read and digested if neither the modification time
+     * nor the configurations have changed.
+     *
+     * @return whether the file would be audited with the same content and configurations again
+     */
+    boolean isCurrent(FileObject fileObject, Collection<? extends Analyzer> analyzers) {
+        if (fileObject.lastModified().getTime() != lastModified) {
+            LOGGER.debug("{} was modified since its last audit", fileObject.getName());
+            return false;
+        }
+        if (!configurationDigest.equals(digestConfigurations(analyzers))) {
+            LOGGER.debug("Configurations changed since last audit of {}", fileObject.getName());
+            return false;
+        }
+        String text;
+        try {
+            text = SonarAnalysisCoreUtils.loadSourceText(fileObject);
+        } catch (IOException ex) {
+            LOGGER.debug("Couldn't read {}, considering it changed", fileObject.getName(), ex);
+            return false;
+        }
+        //unsaved changes only show in the content
+        return contentDigest.equals(Digests.digest(text));
+    }
+
+    private static String digestConfigurations(Collection<? extends Analyzer> analyzers) {
+        StringBuilder configurations = new StringBuilder();
+        for (Analyzer analyzer : analyzers) {
+            configurations.append(analyzer).append('\n').append(analyzer.getConfiguration()).append('\n');
+        }
+        return Digests.digest(configurations.toString());
+    }
+
+    @Override
+    public String toString() {
+        return "AuditStamp{" + "lastModified=" + lastModified + ", contentDigest=" + contentDigest
+                + ", configurationDigest=" + configurationDigest + '}';
+    }
+}
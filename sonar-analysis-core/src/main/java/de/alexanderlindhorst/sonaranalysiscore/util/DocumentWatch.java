@@ -0,0 +1,52 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+
+import org.openide.filesystems.FileObject;
+
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.isLiveAuditEnabled;
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.processAnnotationsForEdit;
+
+/**
+ * Re-audits a file while it's being edited if any analyzer audits live, so annotations follow the unsaved content.
+ * Called while the document is locked, so it only schedules the audit.
+ *
+ * @author alindhorst
+ */
+public class DocumentWatch implements DocumentListener {
+
+    private final FileObject fileObject;
+    private final Document document;
+
+    DocumentWatch(FileObject fileObject, Document document) {
+        this.fileObject = fileObject;
+        this.document = document;
+    }
+
+    Document getDocument() {
+        return document;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        changed();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        changed();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        //attribute changes only, e.g. by our own annotations
+    }
+
+    private void changed() {
+        if (isLiveAuditEnabled()) {
+            processAnnotationsForEdit(fileObject);
+        }
+    }
+}
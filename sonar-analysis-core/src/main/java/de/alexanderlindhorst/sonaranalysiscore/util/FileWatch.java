@@ -1,4 +1,4 @@
-package de.alexanderlindhorst.sonar.pmd.plugin.util;
+package de.alexanderlindhorst.sonaranalysiscore.util;
 
 import org.openide.filesystems.FileAttributeEvent;
 import org.openide.filesystems.FileChangeListener;
@@ -8,7 +8,7 @@ import org.openide.filesystems.FileRenameEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static de.alexanderlindhorst.sonar.pmd.plugin.util.SonarPMDPluginUtils.processAnnotationsFor;
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.processAnnotationsFor;
 
 /**
  * @author lindhrst (original author)
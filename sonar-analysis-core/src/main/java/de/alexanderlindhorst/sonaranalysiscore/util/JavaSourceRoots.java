@@ -0,0 +1,127 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ProjectUtils;
+import org.netbeans.api.project.SourceGroup;
+import org.netbeans.api.project.Sources;
+import org.netbeans.api.project.ui.OpenProjects;
+import org.openide.filesystems.FileObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.JAVA_MIMETYPE;
+
+/**
+ * The Java source roots of all open projects, collected once and kept until a project is opened or closed or a
+ * project's sources change. Finding the source group of a file only walks up the file's folders then, rather than
+ * asking each source group of each open project.
+ *
+ * @author alindhorst
+ */
+final class JavaSourceRoots {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavaSourceRoots.class);
+    private static final Invalidator INVALIDATOR = new Invalidator();
+    private static final AtomicInteger INVALIDATIONS = new AtomicInteger();
+    private static final List<Sources> WATCHED_SOURCES = Lists.newArrayList();
+    private static volatile Map<FileObject, SourceGroup> roots;
+
+    static {
+        OpenProjects.getDefault().addPropertyChangeListener(INVALIDATOR);
+    }
+
+    private JavaSourceRoots() {
+        //utility class
+    }
+
+    /**
+     * @return the Java source group of an open project containing the file, or {@code null} if there is none
+     */
+    static SourceGroup findSourceGroupOf(FileObject fileObject) {
+        Map<FileObject, SourceGroup> sourceRoots = getRoots();
+        for (FileObject folder = fileObject.getParent(); folder != null; folder = folder.getParent()) {
+            SourceGroup sourceGroup = sourceRoots.get(folder);
+            //a root may exclude the file while a root above it includes it
+            if (sourceGroup != null && sourceGroup.contains(fileObject)) {
+                return sourceGroup;
+            }
+        }
+        return null;
+    }
+
+    private static Map<FileObject, SourceGroup> getRoots() {
+        Map<FileObject, SourceGroup> cached = roots;
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (WATCHED_SOURCES) {
+            cached = roots;
+            if (cached != null) {
+                return cached;
+            }
+            int invalidation = INVALIDATIONS.get();
+            Map<FileObject, SourceGroup> collected = collectRoots();
+            //a change while collecting may have been missed, the next lookup collects again then
+            if (INVALIDATIONS.get() == invalidation) {
+                roots = collected;
+            }
+            return collected;
+        }
+    }
+
+    /**
+     * Must be called holding the lock on {@link #WATCHED_SOURCES}.
+     */
+    private static Map<FileObject, SourceGroup> collectRoots() {
+        for (Sources sources : WATCHED_SOURCES) {
+            sources.removeChangeListener(INVALIDATOR);
+        }
+        WATCHED_SOURCES.clear();
+        Map<FileObject, SourceGroup> collected = Maps.newHashMap();
+        for (Project project : OpenProjects.getDefault().getOpenProjects()) {
+            Sources sources = ProjectUtils.getSources(project);
+            sources.addChangeListener(INVALIDATOR);
+            WATCHED_SOURCES.add(sources);
+            for (SourceGroup sourceGroup : sources.getSourceGroups(JAVA_MIMETYPE)) {
+                collected.put(sourceGroup.getRootFolder(), sourceGroup);
+            }
+        }
+        LOGGER.debug("Java source roots of open projects: {}", collected.keySet());
+        return Collections.unmodifiableMap(collected);
+    }
+
+    private static void invalidate() {
+        INVALIDATIONS.incrementAndGet();
+        roots = null;
+    }
+
+    private static class Invalidator implements PropertyChangeListener, ChangeListener {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            if (OpenProjects.PROPERTY_OPEN_PROJECTS.equals(evt.getPropertyName())) {
+                LOGGER.debug("Open projects changed, forgetting source roots");
+                invalidate();
+            }
+        }
+
+        @Override
+        public void stateChanged(ChangeEvent e) {
+            LOGGER.debug("Sources of {} changed, forgetting source roots", e.getSource());
+            invalidate();
+        }
+    }
+}
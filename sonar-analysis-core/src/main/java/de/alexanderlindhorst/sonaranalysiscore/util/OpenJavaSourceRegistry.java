@@ -0,0 +1,99 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.netbeans.api.java.source.JavaSource;
+import org.openide.filesystems.FileObject;
+import org.openide.windows.TopComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import static de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils.getUnderlyingJavaFile;
+
+/**
+ * Keeps track of the editors showing Java files, for all analyzers at once. Safe to be used from any thread, editors
+ * are registered on the event dispatch thread while audits check them on the request processor. A file may be shown
+ * by several editors, e.g. cloned or split ones; it's only considered closed once its last editor is closed.
+ *
+ * @author lindhrst (original author)
+ */
+public final class OpenJavaSourceRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenJavaSourceRegistry.class);
+    private static final ConcurrentMap<TopComponent, JavaSource> TOP_COMPONENT_REGISTRY
+            = new ConcurrentHashMap<TopComponent, JavaSource>();
+    private static final ConcurrentMap<JavaSource, Integer> EDITOR_COUNTS
+            = new ConcurrentHashMap<JavaSource, Integer>();
+    private static final Object LOCK = new Object();
+
+    private OpenJavaSourceRegistry() {
+        //utility class
+    }
+
+    public static boolean isKnownTopComponent(TopComponent component) {
+        return TOP_COMPONENT_REGISTRY.containsKey(component);
+    }
+
+    public static boolean isKnownJavaSource(JavaSource source) {
+        return source != null && EDITOR_COUNTS.containsKey(source);
+    }
+
+    /**
+     * @return true if the component is the first editor of its file, false if the file is open in another editor
+     * already or the component isn't a Java editor
+     */
+    public static boolean markTopComponentOpened(TopComponent topComponent) {
+        if (TOP_COMPONENT_REGISTRY.containsKey(topComponent)) {
+            return false;
+        }
+        JavaSource source = getUnderlyingJavaFile(topComponent);
+        if (source == null) {
+            LOGGER.debug("{} doesn't show a Java source, won't register", topComponent);
+            return false;
+        }
+        synchronized (LOCK) {
+            if (TOP_COMPONENT_REGISTRY.putIfAbsent(topComponent, source) != null) {
+                return false;
+            }
+            Integer editorCount = EDITOR_COUNTS.get(source);
+            EDITOR_COUNTS.put(source, editorCount == null ? 1 : editorCount + 1);
+            return editorCount == null;
+        }
+    }
+
+    /**
+     * @return true if the component was the last editor of its file, false if the file is still open in another
+     * editor or the component wasn't known
+     */
+    public static boolean markTopComponentClosed(TopComponent topComponent) {
+        synchronized (LOCK) {
+            JavaSource source = TOP_COMPONENT_REGISTRY.remove(topComponent);
+            if (source == null) {
+                return false;
+            }
+            int editorCount = EDITOR_COUNTS.get(source) - 1;
+            if (editorCount > 0) {
+                EDITOR_COUNTS.put(source, editorCount);
+                return false;
+            }
+            EDITOR_COUNTS.remove(source);
+            return true;
+        }
+    }
+
+    /**
+     * @return the files currently open in an editor, each one once
+     */
+    public static List<FileObject> getOpenFiles() {
+        List<FileObject> openFiles = Lists.newArrayList();
+        for (JavaSource source : EDITOR_COUNTS.keySet()) {
+            openFiles.addAll(source.getFileObjects());
+        }
+        LOGGER.debug("open files: {}", openFiles);
+        return openFiles;
+    }
+}
@@ -0,0 +1,151 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.prefs.Preferences;
+
+import org.openide.util.Exceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.alexanderlindhorst.sonarplugincommons.ConfigurationDownload;
+
+/**
+ * A configuration downloaded from a Sonar server and kept in a module's preferences along with the validators the
+ * server sent for it. Once an hour the configuration is refreshed in the background.
+ *
+ * @author alindhorst
+ */
+public final class RemoteConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteConfiguration.class);
+    private static final String CONFIG_PROPERTY = "config_url";
+    private static final String CONFIG_CONTENT = "config_content";
+    private static final String CONFIG_MODIFICATION_TIME = "config_modification";
+    private static final String CONFIG_ETAG = "config_etag";
+    private static final String CONFIG_LAST_MODIFIED = "config_last_modified";
+    private static final long REFRESH_INTERVAL = 60 * 60 * 1000;
+    private final Preferences preferences;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * @param preferences the module's preferences, {@code null} if there are none
+     */
+    public RemoteConfiguration(Preferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * Downloads the configuration at the given URL and stores it along with the URL.
+     */
+    public void store(URL url) throws IOException {
+        if (preferences == null) {
+            return;
+        }
+        storeDownload(ConfigurationDownload.fetch(url, null, null));
+        preferences.put(CONFIG_PROPERTY, url.toExternalForm());
+    }
+
+    /**
+     * Forgets URL and configuration.
+     */
+    public void clear() {
+        if (preferences == null) {
+            return;
+        }
+        preferences.put(CONFIG_PROPERTY, "");
+        preferences.put(CONFIG_CONTENT, "");
+        preferences.remove(CONFIG_ETAG);
+        preferences.remove(CONFIG_LAST_MODIFIED);
+    }
+
+    public URL loadUrl() {
+        if (preferences != null) {
+            String configURL = preferences.get(CONFIG_PROPERTY, null);
+            if (configURL != null && !configURL.isEmpty()) {
+                try {
+                    return URI.create(configURL).toURL();
+                } catch (MalformedURLException ex) {
+                    Exceptions.printStackTrace(ex);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the configuration downloaded last, {@code null} if none is configured. Once an hour the configuration is
+     * refreshed in the background, the last one downloaded is used until the refresh is done.
+     */
+    public String loadContent() {
+        if (preferences == null || loadUrl() == null) {
+            return null;
+        }
+        String modificationValue = preferences.get(CONFIG_MODIFICATION_TIME, null);
+        //without timestamp refresh every time
+        if (modificationValue == null || modificationValue.isEmpty()
+                || Long.parseLong(modificationValue) + REFRESH_INTERVAL < System.currentTimeMillis()) {
+            refreshInBackground();
+        }
+        return preferences.get(CONFIG_CONTENT, null);
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        SonarAnalysisCoreUtils.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks the server for the configuration only if it has changed since the last download.
+     */
+    private void refresh() {
+        URL configUrl = loadUrl();
+        if (configUrl == null) {
+            return;
+        }
+        try {
+            ConfigurationDownload download = ConfigurationDownload.fetch(configUrl, preferences.get(CONFIG_ETAG, null),
+                    preferences.get(CONFIG_LAST_MODIFIED, null));
+            if (download != null) {
+                LOGGER.debug("Configuration at {} changed", configUrl);
+                storeDownload(download);
+                return;
+            }
+            LOGGER.debug("Configuration at {} unchanged", configUrl);
+        } catch (IOException ex) {
+            LOGGER.warn("Couldn't refresh configuration from {}, keeping the last one", configUrl, ex);
+        }
+        //after a failure, too, so an unreachable server isn't asked again before the next refresh is due
+        preferences.put(CONFIG_MODIFICATION_TIME, "" + new Date().getTime());
+    }
+
+    private void storeDownload(ConfigurationDownload download) {
+        preferences.put(CONFIG_CONTENT, download.getContent());
+        putOrRemove(CONFIG_ETAG, download.getEntityTag());
+        putOrRemove(CONFIG_LAST_MODIFIED, download.getLastModified());
+        preferences.put(CONFIG_MODIFICATION_TIME, "" + new Date().getTime());
+    }
+
+    private void putOrRemove(String key, String value) {
+        if (value == null) {
+            preferences.remove(key);
+        } else {
+            preferences.put(key, value);
+        }
+    }
+}
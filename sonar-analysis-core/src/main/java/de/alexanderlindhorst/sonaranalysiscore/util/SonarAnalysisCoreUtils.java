@@ -0,0 +1,446 @@
+package de.alexanderlindhorst.sonaranalysiscore.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.prefs.Preferences;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.StyledDocument;
+
+import org.netbeans.api.java.project.JavaProjectConstants;
+import org.netbeans.api.java.source.JavaSource;
+import org.openide.cookies.EditorCookie;
+import org.openide.filesystems.FileObject;
+import org.openide.loaders.DataObject;
+import org.openide.loaders.DataObjectNotFoundException;
+import org.openide.util.Lookup;
+import org.openide.util.NbPreferences;
+import org.openide.util.RequestProcessor;
+import org.openide.windows.TopComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.alexanderlindhorst.sonaranalysiscore.Analyzer;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+
+import static de.alexanderlindhorst.sonaranalysiscore.util.OpenJavaSourceRegistry.markTopComponentClosed;
+import static de.alexanderlindhorst.sonaranalysiscore.util.OpenJavaSourceRegistry.markTopComponentOpened;
+
+/**
+ * Watches the open Java files for all analyzers found in the default lookup and schedules their audits on one shared
+ * request processor.
+ *
+ * @author lindhrst (original author)
+ */
+public final class SonarAnalysisCoreUtils {
+
+    public static final String JAVA_MIMETYPE = JavaProjectConstants.SOURCES_TYPE_JAVA;
+    public static final int DEFAULT_AUDIT_QUIET_PERIOD = 500;
+    public static final int MAX_LIVE_AUDIT_DELAY = 5000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SonarAnalysisCoreUtils.class);
+    private static final RequestProcessor REQUEST_PROCESSOR = new RequestProcessor("sonar plugins request processor", 5,
+            true);
+    private static final Lookup.Result<Analyzer> ANALYZERS = Lookup.getDefault().lookupResult(Analyzer.class);
+    private static final Map<FileObject, PendingAudit> PENDING_AUDITS = Maps.newHashMap();
+    private static final Map<FileObject, DocumentWatch> DOCUMENT_WATCHES = Maps.newHashMap();
+    private static final FileWatch FILE_WATCH = new FileWatch();
+    private static final String AUDIT_QUIET_PERIOD = "audit_quiet_period";
+    private static final long ANALYSIS_WAIT_INTERVAL = 1000;
+
+    private SonarAnalysisCoreUtils() {
+        //utils class
+    }
+
+    /**
+     * Runs a task on the request processor shared by all analyzers.
+     */
+    public static RequestProcessor.Task post(Runnable runnable) {
+        return REQUEST_PROCESSOR.post(runnable);
+    }
+
+    public static FileObject getUnderlyingFile(TopComponent topComponent) {
+        DataObject dataObject = topComponent.getLookup().lookup(DataObject.class);
+        if (dataObject == null) {
+            LOGGER.warn("Couldn't find data object for top component {}", topComponent.getDisplayName());
+            return null;
+        }
+        return dataObject.getPrimaryFile();
+    }
+
+    /**
+     * @return the Java source shown by the component if it belongs to an open project's Java sources; the source
+     * roots are cached, so this is cheap enough to be called on each activation of an editor
+     */
+    public static JavaSource getUnderlyingJavaFile(TopComponent topComponent) {
+        FileObject fileObject = getUnderlyingFile(topComponent);
+        if (fileObject == null) {
+            LOGGER.debug("No file object found for {}", topComponent.getDisplayName());
+            return null;
+        } else {
+            LOGGER.debug("underlying file is {}", fileObject.toURI());
+        }
+        if (JavaSourceRoots.findSourceGroupOf(fileObject) != null) {
+            return JavaSource.forFileObject(fileObject);
+        }
+        LOGGER.debug("No Java file found for {}", topComponent.getDisplayName());
+        return null;
+    }
+
+    /**
+     * @return the text of the file's editor including any unsaved changes, or the file's content if it isn't being
+     * edited
+     */
+    public static String loadSourceText(FileObject fileObject) throws IOException {
+        EditorCookie editorCookie = DataObject.find(fileObject).getLookup().lookup(EditorCookie.class);
+        final StyledDocument document = editorCookie == null ? null : editorCookie.getDocument();
+        if (document == null) {
+            return fileObject.asText();
+        }
+        final String[] text = new String[1];
+        final BadLocationException[] failure = new BadLocationException[1];
+        document.render(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    text[0] = document.getText(0, document.getLength());
+                } catch (BadLocationException ex) {
+                    failure[0] = ex;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw new IOException("Couldn't read editor content of " + fileObject, failure[0]);
+        }
+        return text[0];
+    }
+
+    public static boolean isJavaTopComponent(TopComponent component) {
+        JavaSource file = getUnderlyingJavaFile(component);
+        return file != null;
+    }
+
+    /**
+     * Registers the component and, if it's the file's first editor, starts watching the file, registers it with all
+     * analyzers and audits it right away, merged with any audit still pending for the file.
+     */
+    public static void processAnnotationsFor(TopComponent topComponent) {
+        FileObject fileObject = getUnderlyingFile(topComponent);
+        if (fileObject == null) {
+            return;
+        }
+        if (!markTopComponentOpened(topComponent)) {
+            LOGGER.debug("{} is open in another editor already", fileObject.getName());
+            return;
+        }
+        fileObject.addFileChangeListener(FILE_WATCH);
+        watchDocumentOf(fileObject);
+        for (Analyzer analyzer : ANALYZERS.allInstances()) {
+            analyzer.fileOpened(fileObject);
+        }
+        scheduleAudit(fileObject, true, 0, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Re-audits the file of an activated editor unless its last audit is still current, i.e. neither the file nor the
+     * analyzers' configurations have changed since. The check runs on the request processor, switching tabs doesn't
+     * wait for it.
+     */
+    public static void refreshAnnotationsFor(TopComponent topComponent) {
+        final FileObject fileObject = getUnderlyingFile(topComponent);
+        if (fileObject == null) {
+            return;
+        }
+        final PendingAudit pendingAudit;
+        synchronized (PENDING_AUDITS) {
+            pendingAudit = PENDING_AUDITS.get(fileObject);
+        }
+        if (pendingAudit == null) {
+            return;
+        }
+        REQUEST_PROCESSOR.post(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingAudit.isCurrent()) {
+                    LOGGER.debug("Annotations of {} are up to date", fileObject.getName());
+                    return;
+                }
+                scheduleAudit(fileObject, true, 0, Thread.NORM_PRIORITY);
+            }
+        });
+    }
+
+    /**
+     * Re-audits the file once it has been left alone for the quiet period. Further changes within the quiet period
+     * postpone the audit, so a burst of saves results in one audit only.
+     */
+    public static void processAnnotationsFor(FileObject fileObject) {
+        LOGGER.debug("Will process change in file asynchronously for {}", fileObject.getName());
+        for (Analyzer analyzer : ANALYZERS.allInstances()) {
+            analyzer.invalidateResultsFor(fileObject);
+        }
+        scheduleAudit(fileObject, true, loadAuditQuietPeriod(), Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Re-audits the unsaved content of the file by the analyzers auditing live once typing has paused. The pause has
+     * to be the longer the longer the last audit of the file took, and the audit runs at low priority, so typing isn't
+     * slowed down.
+     */
+    public static void processAnnotationsForEdit(FileObject fileObject) {
+        for (Analyzer analyzer : ANALYZERS.allInstances()) {
+            if (analyzer.isLiveAuditEnabled()) {
+                analyzer.invalidateResultsFor(fileObject);
+            }
+        }
+        int quietPeriod = loadAuditQuietPeriod();
+        synchronized (PENDING_AUDITS) {
+            PendingAudit pendingAudit = pendingAuditFor(fileObject);
+            pendingAudit.request(false, pendingAudit.getLiveDelay(quietPeriod), Thread.MIN_PRIORITY);
+        }
+    }
+
+    /**
+     * @return whether any analyzer audits files while they're being edited
+     */
+    public static boolean isLiveAuditEnabled() {
+        for (Analyzer analyzer : ANALYZERS.allInstances()) {
+            if (analyzer.isLiveAuditEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Listens to the edits of the file's open document for live auditing.
+     */
+    public static void watchDocumentOf(FileObject fileObject) {
+        EditorCookie editorCookie;
+        try {
+            editorCookie = DataObject.find(fileObject).getLookup().lookup(EditorCookie.class);
+        } catch (DataObjectNotFoundException ex) {
+            LOGGER.debug("No data object for {}, can't watch its document", fileObject);
+            return;
+        }
+        StyledDocument document = editorCookie == null ? null : editorCookie.getDocument();
+        if (document == null) {
+            return;
+        }
+        DocumentWatch documentWatch;
+        synchronized (DOCUMENT_WATCHES) {
+            if (DOCUMENT_WATCHES.containsKey(fileObject)) {
+                return;
+            }
+            documentWatch = new DocumentWatch(fileObject, document);
+            DOCUMENT_WATCHES.put(fileObject, documentWatch);
+        }
+        document.addDocumentListener(documentWatch);
+    }
+
+    public static void unwatchDocumentOf(FileObject fileObject) {
+        DocumentWatch documentWatch;
+        synchronized (DOCUMENT_WATCHES) {
+            documentWatch = DOCUMENT_WATCHES.remove(fileObject);
+        }
+        if (documentWatch != null) {
+            documentWatch.getDocument().removeDocumentListener(documentWatch);
+        }
+    }
+
+    /**
+     * Unregisters the component and, if it was the file's last editor, stops watching the file and has all analyzers
+     * remove its annotations.
+     */
+    public static void removeAnnotationsFor(TopComponent topComponent) {
+        FileObject fileObject = getUnderlyingFile(topComponent);
+        if (!markTopComponentClosed(topComponent) || fileObject == null) {
+            return;
+        }
+        fileObject.removeFileChangeListener(FILE_WATCH);
+        unwatchDocumentOf(fileObject);
+        PendingAudit pendingAudit;
+        synchronized (PENDING_AUDITS) {
+            pendingAudit = PENDING_AUDITS.remove(fileObject);
+        }
+        if (pendingAudit != null) {
+            pendingAudit.task.cancel();
+        }
+        for (Analyzer analyzer : ANALYZERS.allInstances()) {
+            analyzer.fileClosed(fileObject);
+        }
+    }
+
+    /**
+     * Coalesces all audit requests of a file into one task. A request arriving while the file is being audited
+     * interrupts that audit, its result is outdated anyway.
+     */
+    private static void scheduleAudit(FileObject fileObject, boolean allAnalyzers, int delay, int priority) {
+        synchronized (PENDING_AUDITS) {
+            pendingAuditFor(fileObject).request(allAnalyzers, delay, priority);
+        }
+    }
+
+    private static PendingAudit pendingAuditFor(FileObject fileObject) {
+        PendingAudit pendingAudit = PENDING_AUDITS.get(fileObject);
+        if (pendingAudit == null) {
+            pendingAudit = new PendingAudit(fileObject);
+            PENDING_AUDITS.put(fileObject, pendingAudit);
+        }
+        return pendingAudit;
+    }
+
+    /**
+     * @return milliseconds a file has to be left alone after a change before it's audited again. This is an internal
+     * setting without options UI, it can only be tuned in the module's preferences.
+     */
+    private static int loadAuditQuietPeriod() {
+        Preferences preferences = NbPreferences.forModule(SonarAnalysisCoreUtils.class);
+        if (preferences != null) {
+            return Math.max(0, preferences.getInt(AUDIT_QUIET_PERIOD, DEFAULT_AUDIT_QUIET_PERIOD));
+        }
+        return DEFAULT_AUDIT_QUIET_PERIOD;
+    }
+
+    private static class PendingAudit implements Runnable {
+
+        private final FileObject fileObject;
+        private final RequestProcessor.Task task;
+        private boolean allAnalyzers;
+        private volatile long lastAuditDuration;
+        private volatile AuditStamp lastAudit;
+
+        PendingAudit(FileObject fileObject) {
+            this.fileObject = fileObject;
+            this.task = REQUEST_PROCESSOR.create(this);
+        }
+
+        synchronized void request(boolean allAnalyzers, int delay, int priority) {
+            //a save or an opened editor needs all analyzers, even if a live audit is requested afterwards
+            this.allAnalyzers |= allAnalyzers;
+            boolean pending = !task.isFinished();
+            if (pending) {
+                LOGGER.debug("Superseding pending audit of {}", fileObject.getName());
+                task.cancel();
+            }
+            //a keystroke mustn't demote a pending audit of a save or an opened editor to the live audits' priority
+            task.setPriority(pending && this.allAnalyzers ? Math.max(priority, task.getPriority()) : priority);
+            task.schedule(delay);
+        }
+
+        int getLiveDelay(int quietPeriod) {
+            return (int) Math.min(MAX_LIVE_AUDIT_DELAY, Math.max(quietPeriod, 2 * lastAuditDuration));
+        }
+
+        /**
+         * @return whether an audit is pending anyway or the last audit by all analyzers is still current
+         */
+        boolean isCurrent() {
+            if (!task.isFinished()) {
+                return true;
+            }
+            AuditStamp audited = lastAudit;
+            return audited != null && audited.isCurrent(fileObject, ANALYZERS.allInstances());
+        }
+
+        /**
+         * Reads the file once and hands the content to all analyzers to audit in parallel. The analyzers' tasks run on
+         * the shared request processor, too; waiting for a task that hasn't started yet runs it in this thread, so
+         * audits can't starve each other of threads.
+         */
+        @Override
+        public void run() {
+            boolean all;
+            synchronized (this) {
+                all = allAnalyzers;
+                allAnalyzers = false;
+            }
+            if (!OpenJavaSourceRegistry.isKnownJavaSource(JavaSource.forFileObject(fileObject))) {
+                return;
+            }
+            List<Analyzer> analyzers = Lists.newArrayList();
+            for (Analyzer analyzer : ANALYZERS.allInstances()) {
+                if (all || analyzer.isLiveAuditEnabled()) {
+                    analyzers.add(analyzer);
+                }
+            }
+            if (analyzers.isEmpty()) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long lastModified = fileObject.lastModified().getTime();
+            SourceSnapshot snapshot;
+            try {
+                //only edits requested this audit, no save or opened editor
+                snapshot = new SourceSnapshot(fileObject, loadSourceText(fileObject), !all);
+            } catch (IOException ex) {
+                LOGGER.warn("Couldn't read {}, won't audit it", fileObject, ex);
+                return;
+            }
+            List<RequestProcessor.Task> analyses = Lists.newArrayList();
+            for (Analyzer analyzer : analyzers) {
+                analyses.add(REQUEST_PROCESSOR.post(new Analysis(analyzer, snapshot)));
+            }
+            if (!awaitAll(analyses)) {
+                LOGGER.debug("Audit of {} was superseded, cancelled its analyses", fileObject.getName());
+                synchronized (this) {
+                    //the superseding audit has to make up for the cancelled analyses of a save or an opened editor
+                    allAnalyzers |= all;
+                }
+                return;
+            }
+            lastAuditDuration = System.currentTimeMillis() - start;
+            if (all && !Thread.currentThread().isInterrupted()) {
+                lastAudit = AuditStamp.of(snapshot, lastModified, analyzers);
+            }
+            LOGGER.debug("{} analyzed by {} in {} ms", fileObject.getName(), analyzers, lastAuditDuration);
+        }
+
+        /**
+         * Waits for the analyses to finish. If this audit is superseded meanwhile, i.e. its thread is interrupted, the
+         * analyses are cancelled, which interrupts those already running; their results are outdated as well.
+         *
+         * @return whether all analyses finished
+         */
+        private boolean awaitAll(List<RequestProcessor.Task> analyses) {
+            try {
+                for (RequestProcessor.Task analysis : analyses) {
+                    while (!analysis.waitFinished(ANALYSIS_WAIT_INTERVAL)) {
+                        //unlike waitFinished(), waiting with a timeout ends when this thread is interrupted
+                    }
+                }
+                return true;
+            } catch (InterruptedException ex) {
+                for (RequestProcessor.Task analysis : analyses) {
+                    analysis.cancel();
+                }
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static class Analysis implements Runnable {
+
+        private final Analyzer analyzer;
+        private final SourceSnapshot snapshot;
+
+        Analysis(Analyzer analyzer, SourceSnapshot snapshot) {
+            this.analyzer = analyzer;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            try {
+                analyzer.analyze(snapshot);
+            } catch (RuntimeException e) {
+                //one broken analyzer mustn't keep the others from annotating
+                LOGGER.error("{} failed to analyze {}", analyzer, snapshot.getFileObject(), e);
+            }
+        }
+    }
+}
@@ -40,6 +40,7 @@ final class SonarCheckstylePluginPanel extends javax.swing.JPanel {
         try {
             URL configUrl = configPane.getConfigUrl();
             SonarCheckstylePluginUtils.storeConfig(configUrl == null ? null : configUrl.toExternalForm());
+            SonarCheckstylePluginUtils.processAnnotationsForAllOpenFiles();
         } catch (MalformedURLException ex) {
             Exceptions.printStackTrace(ex);
         }
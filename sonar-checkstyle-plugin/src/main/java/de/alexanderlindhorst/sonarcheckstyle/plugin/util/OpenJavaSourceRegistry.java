@@ -1,35 +1,49 @@
 package de.alexanderlindhorst.sonarcheckstyle.plugin.util;
 
-import java.io.StringReader;
-import java.net.URL;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.netbeans.api.java.source.JavaSource;
 import org.openide.cookies.LineCookie;
 import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
 import org.openide.loaders.DataObjectNotFoundException;
+import org.openide.modules.Places;
 import org.openide.text.Line;
 import org.openide.util.Exceptions;
 import org.openide.util.Utilities;
-import org.openide.windows.TopComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.InputSource;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
 import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 
 import de.alexanderlindhorst.sonarcheckstyle.plugin.annotation.SonarCheckstyleAnnotation;
+import de.alexanderlindhorst.sonarcheckstyleprocessor.ConfigurationCache;
+import de.alexanderlindhorst.sonarcheckstyleprocessor.FileAuditResult;
+import de.alexanderlindhorst.sonarcheckstyleprocessor.ParallelCheckstyleAuditRunner;
 import de.alexanderlindhorst.sonarcheckstyleprocessor.PerFileCheckstyleAuditRunner;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+import de.alexanderlindhorst.sonaranalysiscore.util.AnnotationBatch;
+import de.alexanderlindhorst.sonaranalysiscore.util.SonarAnalysisCoreUtils;
+import de.alexanderlindhorst.sonarplugincommons.AnnotationSet;
+import de.alexanderlindhorst.sonarplugincommons.AuditGenerations;
+import de.alexanderlindhorst.sonarplugincommons.ResultCache;
+import de.alexanderlindhorst.sonarplugincommons.ResultKey;
+import de.alexanderlindhorst.sonarplugincommons.ResultStore;
+import de.alexanderlindhorst.sonarplugincommons.SerializingResultCodec;
+import de.alexanderlindhorst.sonarplugincommons.ViolationKey;
 
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstylePluginUtils.getUnderlyingFile;
-import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstylePluginUtils.getUnderlyingJavaFile;
+import static de.alexanderlindhorst.sonaranalysiscore.util.OpenJavaSourceRegistry.getOpenFiles;
 
 /**
  * @author lindhrst (original author)
@@ -37,99 +51,244 @@ import static de.alexanderlindhorst.sonarcheckstyle.plugin.util.SonarCheckstyleP
 public final class OpenJavaSourceRegistry {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenJavaSourceRegistry.class);
-    private static final Map<JavaSource, List<SonarCheckstyleAnnotation>> ANNOTATION_REGISTRY = Maps.newHashMap();
-    private static final Map<TopComponent, JavaSource> TOP_COMPONENT_REGISTRY = Maps.newHashMap();
+    private static final ConcurrentMap<JavaSource, AnnotationSet<SonarCheckstyleAnnotation>> ANNOTATION_REGISTRY
+            = new ConcurrentHashMap<JavaSource, AnnotationSet<SonarCheckstyleAnnotation>>();
+    private static final int AUDIT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final String CHECKSTYLE_VERSION = Checker.class.getPackage().getImplementationVersion();
+    private static final ResultCache<FileAuditResult> RESULT_CACHE = createResultCache();
+    private static final AuditGenerations<FileObject> GENERATIONS = new AuditGenerations<FileObject>();
 
     private OpenJavaSourceRegistry() {
         //utility class
     }
 
-    public static boolean isKnownTopComponent(TopComponent component) {
-        return TOP_COMPONENT_REGISTRY.containsKey(component);
-    }
-
-    public static boolean isKnownJavaSource(JavaSource source) {
-        return TOP_COMPONENT_REGISTRY.values().contains(source) && ANNOTATION_REGISTRY.containsKey(source);
+    public static void markFileOpened(FileObject fileObject) {
+        JavaSource source = JavaSource.forFileObject(fileObject);
+        if (source == null) {
+            LOGGER.debug("{} is no Java source, won't register", fileObject);
+            return;
+        }
+        ANNOTATION_REGISTRY.putIfAbsent(source, new AnnotationSet<SonarCheckstyleAnnotation>());
     }
 
-    public static void markTopComponentOpened(TopComponent topComponent) {
-        JavaSource source = getUnderlyingJavaFile(topComponent);
-        List<SonarCheckstyleAnnotation> annotations = ANNOTATION_REGISTRY.get(source);
-        if (annotations == null) {
-            annotations = new ArrayList<SonarCheckstyleAnnotation>();
-            ANNOTATION_REGISTRY.put(source, annotations);
+    public static void markFileClosed(FileObject fileObject) {
+        GENERATIONS.remove(fileObject);
+        JavaSource source = JavaSource.forFileObject(fileObject);
+        if (source == null) {
+            return;
         }
-        if (!TOP_COMPONENT_REGISTRY.keySet().contains(topComponent)) {
-            TOP_COMPONENT_REGISTRY.put(topComponent, source);
+        AnnotationSet<SonarCheckstyleAnnotation> annotations = ANNOTATION_REGISTRY.remove(source);
+        if (annotations != null) {
+            detach(annotations.clear());
         }
-        FileObject underlyingFile = getUnderlyingFile(topComponent);
-        clearOldAnnotationsFor(source);
-        applyAnnotationsFor(underlyingFile);
     }
 
-    public static void markTopComponentClosed(TopComponent topComponent) {
-        JavaSource source = TOP_COMPONENT_REGISTRY.get(topComponent);
-        clearOldAnnotationsFor(source);
-        ANNOTATION_REGISTRY.remove(source);
-        TOP_COMPONENT_REGISTRY.remove(topComponent);
+    /**
+     * Audits the file and updates its annotations, unless the file was changed, audited again or closed in the
+     * meantime. Annotations of lines with the same problems as before stay attached, all changes are applied in one
+     * batch on the event dispatch thread.
+     */
+    public static void applyAnnotationsFor(SourceSnapshot snapshot) {
+        FileObject fileObject = snapshot.getFileObject();
+        long generation = GENERATIONS.next(fileObject);
+        FileAuditResult result = processFile(snapshot);
+        if (result == null) {
+            return;
+        }
+        if (isSuperseded(fileObject, generation)) {
+            LOGGER.debug("Audit of {} was superseded, dropping its result", fileObject);
+            return;
+        }
+        updateAnnotations(fileObject, result, generation);
     }
 
-    public static void applyAnnotationsFor(FileObject fileObject) {
-        JavaSource source = JavaSource.forFileObject(fileObject);
-        List<SonarCheckstyleAnnotation> annotations = ANNOTATION_REGISTRY.get(source);
-
-        PerFileCheckstyleAuditRunner auditRunner = processFile(fileObject);
-        if (auditRunner == null) {
-            return;
+    /**
+     * Re-audits all files currently open in an editor, spread over a few workers each auditing its share in one
+     * Checkstyle pass, and replaces their annotations. Files with a cached result aren't audited again.
+     */
+    public static void applyAnnotationsForAllKnownSources() {
+        String configContent = loadConfigurationContent();
+        Map<FileObject, FileAuditResult> results = Maps.newLinkedHashMap();
+        Map<File, FileObject> targetFiles = Maps.newLinkedHashMap();
+        Map<File, ResultKey> targetKeys = Maps.newHashMap();
+        Map<FileObject, Long> generations = Maps.newHashMap();
+        for (FileObject fileObject : getOpenFiles()) {
+            generations.put(fileObject, GENERATIONS.next(fileObject));
+            String text = loadSourceText(fileObject);
+            if (text == null) {
+                continue;
+            }
+            ResultKey key = createResultKey(new SourceSnapshot(fileObject, text), configContent);
+            FileAuditResult cached = RESULT_CACHE.get(key);
+            if (cached == null && isModified(fileObject)) {
+                //unsaved changes, the batch would audit the outdated content on disk
+                results.put(fileObject, auditText(fileObject, text, key, configContent));
+                continue;
+            }
+            results.put(fileObject, cached);
+            if (cached == null) {
+                File file = Utilities.toFile(fileObject.toURI());
+                targetFiles.put(file, fileObject);
+                targetKeys.put(file, key);
+            }
+        }
+        if (!targetFiles.isEmpty()) {
+            ParallelCheckstyleAuditRunner auditRunner = processFiles(Lists.newArrayList(targetFiles.keySet()),
+                    configContent);
+            if (auditRunner == null) {
+                return;
+            }
+            for (Map.Entry<File, FileObject> entry : targetFiles.entrySet()) {
+                FileAuditResult result = auditRunner.getResultFor(entry.getKey());
+                ResultKey key = targetKeys.get(entry.getKey());
+                if (!auditRunner.hasAuditProblems()) {
+                    RESULT_CACHE.put(key, result);
+                }
+                results.put(entry.getValue(), result);
+            }
         }
-        Line.Set lineSet = getLineCookieFromFileObject(fileObject).getLineSet();
-        for (LocalizedMessage localizedMessage : auditRunner.getErrorMessages()) {
-            int targetIndex = localizedMessage.getLineNo() - 1;
-            if (targetIndex < 0) {
-                targetIndex = 0;
+        for (Map.Entry<FileObject, FileAuditResult> entry : results.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
             }
-            Line current = lineSet.getCurrent(targetIndex);
-            SonarCheckstyleAnnotation annotation = new SonarCheckstyleAnnotation(localizedMessage);
-            annotation.attach(current);
-            annotations.add(annotation);
+            if (isSuperseded(entry.getKey(), generations.get(entry.getKey()))) {
+                LOGGER.debug("Audit of {} was superseded, dropping its result", entry.getKey());
+                continue;
+            }
+            updateAnnotations(entry.getKey(), entry.getValue(), generations.get(entry.getKey()));
         }
     }
 
+    /**
+     * Supersedes any audit of the file that's currently running, e.g. because the file has just been changed.
+     */
+    public static void invalidateResultsFor(FileObject fileObject) {
+        GENERATIONS.next(fileObject);
+    }
+
     public static void clearOldAnnotationsFor(FileObject fileObject) {
         LOGGER.debug("Attempting to clean annotations for {}", fileObject);
         JavaSource source = JavaSource.forFileObject(fileObject);
-        clearOldAnnotationsFor(source);
-    }
-
-    private static void clearOldAnnotationsFor(JavaSource source) {
-        List<SonarCheckstyleAnnotation> registeredAnnotations = ANNOTATION_REGISTRY.get(source);
+        AnnotationSet<SonarCheckstyleAnnotation> registeredAnnotations = source == null ? null
+                : ANNOTATION_REGISTRY.get(source);
         if (registeredAnnotations == null) {
             LOGGER.debug("Nothing to clear");
             return;
         }
-        for (SonarCheckstyleAnnotation annotation : registeredAnnotations) {
+        detach(registeredAnnotations.clear());
+    }
+
+    private static void detach(Collection<SonarCheckstyleAnnotation> annotations) {
+        for (SonarCheckstyleAnnotation annotation : annotations) {
             annotation.detach();
         }
-        registeredAnnotations.clear();
     }
 
-    private static PerFileCheckstyleAuditRunner processFile(FileObject fileObject) {
-        PerFileCheckstyleAuditRunner auditRunner = null;
+    /**
+     * Detaches the annotations of lines whose problems have changed and attaches annotations for them anew, all other
+     * annotations are left alone. The batch is dropped if the file is audited again or closed before it's applied.
+     */
+    private static void updateAnnotations(final FileObject fileObject, FileAuditResult result, final long generation) {
+        final JavaSource source = JavaSource.forFileObject(fileObject);
+        final AnnotationSet<SonarCheckstyleAnnotation> annotations = source == null ? null
+                : ANNOTATION_REGISTRY.get(source);
+        if (annotations == null) {
+            LOGGER.debug("{} is not known (anymore), won't annotate", fileObject);
+            return;
+        }
+        //one annotation per line carrying all of the line's messages
+        final Map<ViolationKey, List<LocalizedMessage>> messagesByKey = Maps.newLinkedHashMap();
+        for (int lineNo : result.getLineNumbers()) {
+            List<LocalizedMessage> messages = result.getMessagesForLine(lineNo);
+            messagesByKey.put(createViolationKey(lineNo, messages), messages);
+        }
+        Line.Set lineSet = messagesByKey.isEmpty() ? null : getLineCookieFromFileObject(fileObject).getLineSet();
+        new AnnotationBatch<SonarCheckstyleAnnotation>(fileObject, annotations, messagesByKey.keySet(), lineSet) {
+            @Override
+            protected boolean isApplicable() {
+                return GENERATIONS.isCurrent(fileObject, generation)
+                        && ANNOTATION_REGISTRY.get(source) == annotations;
+            }
+
+            @Override
+            protected SonarCheckstyleAnnotation createAnnotation(ViolationKey key) {
+                SonarCheckstyleAnnotation annotation = null;
+                for (LocalizedMessage localizedMessage : messagesByKey.get(key)) {
+                    if (annotation == null) {
+                        annotation = new SonarCheckstyleAnnotation(localizedMessage);
+                    } else {
+                        annotation.addErrorMessage(localizedMessage);
+                    }
+                }
+                return annotation;
+            }
+        }.applyOnEventThread();
+    }
+
+    private static boolean isSuperseded(FileObject fileObject, long generation) {
+        return Thread.currentThread().isInterrupted() || !GENERATIONS.isCurrent(fileObject, generation);
+    }
+
+    /**
+     * @return key of the line's annotation, combining the checks and messages of all its problems
+     */
+    private static ViolationKey createViolationKey(int lineNo, List<LocalizedMessage> messages) {
+        StringBuilder checks = new StringBuilder();
+        StringBuilder texts = new StringBuilder();
+        for (LocalizedMessage message : messages) {
+            checks.append(message.getSourceName()).append('\n');
+            texts.append(message.getMessage()).append('\n');
+        }
+        return new ViolationKey(checks.toString(), lineNo, texts.toString());
+    }
+
+    private static FileAuditResult processFile(SourceSnapshot snapshot) {
+        String configContent = loadConfigurationContent();
+        ResultKey key = createResultKey(snapshot, configContent);
+        FileAuditResult cached = RESULT_CACHE.get(key);
+        if (cached != null) {
+            LOGGER.debug("{} unchanged since last audit, using cached result", snapshot.getFileObject());
+            return cached;
+        }
+        return auditText(snapshot.getFileObject(), snapshot.getText(), key, configContent);
+    }
+
+    /**
+     * Audits the editor's text of the file rather than its content on disk, so unsaved changes are audited, too.
+     */
+    private static FileAuditResult auditText(FileObject fileObject, String text, ResultKey key,
+            String configContent) {
+        if (Thread.currentThread().isInterrupted()) {
+            LOGGER.debug("Audit of {} was superseded before it started", fileObject);
+            return null;
+        }
+        PerFileCheckstyleAuditRunner auditRunner;
         try {
-            URL configUrl = SonarCheckstylePluginUtils.loadConfigUrl();
-            String configContent = SonarCheckstylePluginUtils.loadConfigurationContent();
-            LOGGER.debug("retrieved configuration: {}", configContent);
-            if (configContent == null) {
-                auditRunner = new PerFileCheckstyleAuditRunner(null, Utilities.toFile(fileObject.toURI()));
-            } else {
-                InputSource inputSource = new InputSource(new StringReader(configContent));
-                Configuration config = ConfigurationLoader.loadConfiguration(inputSource, null, true);
-                LOGGER.debug("processing file using configuration {} ({})", configUrl, config);
-                auditRunner = new PerFileCheckstyleAuditRunner(config, Utilities.toFile(fileObject.toURI()));
+            auditRunner = new PerFileCheckstyleAuditRunner(parseConfiguration(configContent),
+                    Utilities.toFile(fileObject.toURI()), text);
+        } catch (CheckstyleException checkstyleException) {
+            Exceptions.printStackTrace(checkstyleException);
+            return null;
+        }
+        auditRunner.run();
+        if (auditRunner.hasAuditProblems()) {
+            for (Throwable throwable : auditRunner.getAuditExceptions()) {
+                Exceptions.attachMessage(throwable, throwable.getLocalizedMessage());
             }
+        } else {
+            RESULT_CACHE.put(key, auditRunner.getResult());
+        }
+        return auditRunner.getResult();
+    }
+
+    private static ParallelCheckstyleAuditRunner processFiles(List<File> files, String configContent) {
+        ParallelCheckstyleAuditRunner auditRunner;
+        try {
+            auditRunner = new ParallelCheckstyleAuditRunner(parseConfiguration(configContent), files,
+                    AUDIT_PARALLELISM);
         } catch (CheckstyleException checkstyleException) {
             Exceptions.printStackTrace(checkstyleException);
-            return auditRunner;
+            return null;
         }
         auditRunner.run();
         if (auditRunner.hasAuditProblems()) {
@@ -140,6 +299,66 @@ public final class OpenJavaSourceRegistry {
         return auditRunner;
     }
 
+    private static ResultKey createResultKey(SourceSnapshot snapshot, String configContent) {
+        return ResultKey.of(snapshot.getBytes(), configContent, CHECKSTYLE_VERSION);
+    }
+
+    private static String loadSourceText(FileObject fileObject) {
+        try {
+            return SonarAnalysisCoreUtils.loadSourceText(fileObject);
+        } catch (IOException ex) {
+            LOGGER.warn("Couldn't read {}, won't audit it", fileObject, ex);
+            return null;
+        }
+    }
+
+    private static boolean isModified(FileObject fileObject) {
+        try {
+            return DataObject.find(fileObject).isModified();
+        } catch (DataObjectNotFoundException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the configuration stored in the preferences or {@code null} if there is none
+     */
+    private static String loadConfigurationContent() {
+        String configContent = SonarCheckstylePluginUtils.loadConfigurationContent();
+        LOGGER.debug("retrieved configuration: {}", configContent);
+        if (configContent == null || configContent.isEmpty()) {
+            return null;
+        }
+        return configContent;
+    }
+
+    /**
+     * @return the parsed configuration or {@code null} to have the runners fall back to Sun checks
+     */
+    private static Configuration parseConfiguration(String configContent) throws CheckstyleException {
+        if (configContent == null) {
+            return null;
+        }
+        Configuration config = ConfigurationCache.getDefault().get(configContent);
+        LOGGER.debug("processing file using configuration {} ({})", SonarCheckstylePluginUtils.loadConfigUrl(), config);
+        return config;
+    }
+
+    /**
+     * @return a cache backed by a store in the IDE's cache directory, so restored editors are annotated from the last
+     * session's results; a cache in memory only if the store can't be opened
+     */
+    private static ResultCache<FileAuditResult> createResultCache() {
+        File storeDirectory = Places.getCacheSubdirectory("sonar-violations/checkstyle");
+        try {
+            return new ResultCache<FileAuditResult>(ResultCache.DEFAULT_MAX_ENTRIES, new ResultStore(storeDirectory),
+                    new SerializingResultCodec<FileAuditResult>(OpenJavaSourceRegistry.class.getClassLoader()));
+        } catch (IOException ex) {
+            LOGGER.warn("Couldn't open result store in {}, results won't be kept across sessions", storeDirectory, ex);
+            return new ResultCache<FileAuditResult>();
+        }
+    }
+
     private static LineCookie getLineCookieFromFileObject(FileObject fileObject) {
         if (fileObject.isVirtual()) {
             return null;
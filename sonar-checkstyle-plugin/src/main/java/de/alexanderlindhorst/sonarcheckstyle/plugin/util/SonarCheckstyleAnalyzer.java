@@ -0,0 +1,51 @@
+package de.alexanderlindhorst.sonarcheckstyle.plugin.util;
+
+import org.openide.filesystems.FileObject;
+import org.openide.util.lookup.ServiceProvider;
+
+import de.alexanderlindhorst.sonaranalysiscore.Analyzer;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+
+/**
+ * Plugs Checkstyle into the analysis core.
+ *
+ * @author alindhorst
+ */
+@ServiceProvider(service = Analyzer.class)
+public class SonarCheckstyleAnalyzer implements Analyzer {
+
+    @Override
+    public void fileOpened(FileObject fileObject) {
+        OpenJavaSourceRegistry.markFileOpened(fileObject);
+    }
+
+    @Override
+    public void analyze(SourceSnapshot snapshot) {
+        OpenJavaSourceRegistry.applyAnnotationsFor(snapshot);
+    }
+
+    @Override
+    public void fileClosed(FileObject fileObject) {
+        OpenJavaSourceRegistry.markFileClosed(fileObject);
+    }
+
+    @Override
+    public void invalidateResultsFor(FileObject fileObject) {
+        OpenJavaSourceRegistry.invalidateResultsFor(fileObject);
+    }
+
+    @Override
+    public boolean isLiveAuditEnabled() {
+        return false;
+    }
+
+    @Override
+    public String getConfiguration() {
+        return SonarCheckstylePluginUtils.loadConfigurationContent();
+    }
+
+    @Override
+    public String toString() {
+        return "Checkstyle";
+    }
+}
@@ -0,0 +1,98 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * Audits any number of files in a single pass of one pooled {@link Checker}, so the setup cost is paid once for the
+ * whole batch rather than once per file.
+ *
+ * @author alindhorst
+ */
+public class BatchCheckstyleAuditRunner implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchCheckstyleAuditRunner.class);
+    private final List<File> targetFiles;
+    private final Configuration configuration;
+    private final CheckerPool checkerPool;
+    private final CheckstyleResultProvider resultProvider;
+
+    public BatchCheckstyleAuditRunner(Configuration configuration, List<File> targetFiles) throws CheckstyleException {
+        this(configuration, targetFiles, CheckerPool.getDefault());
+    }
+
+    BatchCheckstyleAuditRunner(Configuration configuration, List<File> targetFiles, CheckerPool checkerPool) throws
+            CheckstyleException {
+        Configuration localConfig = configuration;
+        if (localConfig == null) {
+            LOGGER.warn("No CheckStyle configuration given, will default to Sun Checks only");
+            localConfig = PerFileCheckstyleAuditRunner.loadSunChecksConfiguration();
+        }
+        this.targetFiles = ImmutableList.copyOf(targetFiles);
+        this.configuration = localConfig;
+        this.checkerPool = checkerPool;
+        this.resultProvider = new CheckstyleResultProvider();
+    }
+
+    @Override
+    public void run() {
+        if (targetFiles.isEmpty()) {
+            return;
+        }
+        Checker checker;
+        try {
+            checker = checkerPool.borrow(configuration);
+        } catch (CheckstyleException ex) {
+            LOGGER.error("Couldn't set up checker for batch audit", ex);
+            resultProvider.getAuditExceptions().add(ex);
+            return;
+        }
+        LOGGER.debug("Auditing {} files in one pass", targetFiles.size());
+        checker.addListener(resultProvider);
+        try {
+            checker.process(targetFiles);
+        } finally {
+            checker.removeListener(resultProvider);
+            checkerPool.release(configuration, checker);
+        }
+    }
+
+    /**
+     * @return the result of every audited file, in the order the files were handed in. Files without any problem are
+     * mapped to an empty result.
+     */
+    public Map<File, FileAuditResult> getResultsByFile() {
+        Map<File, FileAuditResult> resultsByFile = Maps.newLinkedHashMap();
+        for (File targetFile : targetFiles) {
+            resultsByFile.put(targetFile, getResultFor(targetFile));
+        }
+        return resultsByFile;
+    }
+
+    public FileAuditResult getResultFor(File targetFile) {
+        return resultProvider.getResultFor(targetFile.getAbsolutePath());
+    }
+
+    public List<LocalizedMessage> getErrorMessagesFor(File targetFile) {
+        return getResultFor(targetFile).getMessages();
+    }
+
+    public List<Throwable> getAuditExceptions() {
+        return resultProvider.getAuditExceptions();
+    }
+
+    public boolean hasAuditProblems() {
+        return resultProvider.hasAuditExceptions();
+    }
+}
@@ -0,0 +1,119 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Pool of readily configured {@link Checker} instances. Configuring a checker instantiates every check module of the
+ * configuration, which is far more expensive than auditing a single file, so checkers are handed back after an audit
+ * and reused for the next one. Pooled checkers are keyed by configuration identity; only the most recently used
+ * configurations are kept.
+ *
+ * @author alindhorst
+ */
+public final class CheckerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckerPool.class);
+    private static final int DEFAULT_MAX_CONFIGURATIONS = 4;
+    private static final int DEFAULT_MAX_IDLE_PER_CONFIGURATION = 5;
+    private static final CheckerPool DEFAULT = new CheckerPool(DEFAULT_MAX_CONFIGURATIONS,
+            DEFAULT_MAX_IDLE_PER_CONFIGURATION);
+    private final Map<Configuration, Deque<Checker>> idleCheckers;
+    private final int maxIdlePerConfiguration;
+
+    CheckerPool(final int maxConfigurations, int maxIdlePerConfiguration) {
+        this.maxIdlePerConfiguration = maxIdlePerConfiguration;
+        this.idleCheckers = new LinkedHashMap<Configuration, Deque<Checker>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Configuration, Deque<Checker>> eldest) {
+                if (size() <= maxConfigurations) {
+                    return false;
+                }
+                LOGGER.debug("Evicting pooled checkers for configuration {}", eldest.getKey());
+                destroyAll(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public static CheckerPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Hands out an idle checker for the given configuration or creates and configures a new one if none is available.
+     * The caller owns the checker until it is passed back via {@link #release(Configuration, Checker)}.
+     */
+    public Checker borrow(Configuration configuration) throws CheckstyleException {
+        Checker checker;
+        synchronized (idleCheckers) {
+            Deque<Checker> idle = idleCheckers.get(configuration);
+            checker = idle == null ? null : idle.pollFirst();
+        }
+        if (checker == null) {
+            LOGGER.debug("No idle checker available for configuration {}, creating a new one", configuration);
+            checker = createChecker(configuration);
+        }
+        return checker;
+    }
+
+    /**
+     * Returns a checker previously obtained by {@link #borrow(Configuration)}. Listeners added by the caller must have
+     * been removed already.
+     */
+    public void release(Configuration configuration, Checker checker) {
+        synchronized (idleCheckers) {
+            Deque<Checker> idle = idleCheckers.get(configuration);
+            if (idle == null) {
+                idle = new ArrayDeque<Checker>();
+                idleCheckers.put(configuration, idle);
+            }
+            if (idle.size() < maxIdlePerConfiguration) {
+                idle.offerFirst(checker);
+                return;
+            }
+        }
+        checker.destroy();
+    }
+
+    public void clear() {
+        synchronized (idleCheckers) {
+            for (Deque<Checker> idle : idleCheckers.values()) {
+                destroyAll(idle);
+            }
+            idleCheckers.clear();
+        }
+    }
+
+    int getIdleCount(Configuration configuration) {
+        synchronized (idleCheckers) {
+            Deque<Checker> idle = idleCheckers.get(configuration);
+            return idle == null ? 0 : idle.size();
+        }
+    }
+
+    private static Checker createChecker(Configuration configuration) throws CheckstyleException {
+        Checker checker = new SourceTextChecker();
+        checker.setModuleClassLoader(Checker.class.getClassLoader());
+        checker.configure(configuration);
+        return checker;
+    }
+
+    private static void destroyAll(Deque<Checker> checkers) {
+        for (Checker checker : checkers) {
+            checker.destroy();
+        }
+        checkers.clear();
+    }
+}
@@ -1,22 +1,29 @@
 package de.alexanderlindhorst.sonarcheckstyleprocessor;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import com.puppycrawl.tools.checkstyle.api.AuditListener;
 import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 
 /**
+ * Collects the messages of an audit indexed by the audited file's name. Messages are gathered per file while the
+ * audit is running and turned into sorted {@link FileAuditResult}s once it has finished (or results are asked for).
+ *
  * @author lindhrst (original author)
  */
 class CheckstyleResultProvider implements AuditListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CheckstyleResultProvider.class);
-    private List<LocalizedMessage> errorMessages = Lists.newArrayList();
+    private Map<String, List<LocalizedMessage>> pendingMessages = Maps.newLinkedHashMap();
+    private Map<String, FileAuditResult> results = Maps.newLinkedHashMap();
     private List<Throwable> auditExceptions = Lists.newArrayList();
 
     @Override
@@ -27,11 +34,13 @@ class CheckstyleResultProvider implements AuditListener {
     @Override
     public void auditFinished(AuditEvent auditEvent) {
         LOGGER.debug("auditFinished called for AuditEvent " + auditEvent);
+        collectPendingMessages();
     }
 
     @Override
     public void fileStarted(AuditEvent auditEvent) {
         LOGGER.debug("fileStarted called for AuditEvent " + auditEvent);
+        pendingMessagesFor(auditEvent.getFileName());
     }
 
     @Override
@@ -42,7 +51,7 @@ class CheckstyleResultProvider implements AuditListener {
     @Override
     public void addError(AuditEvent auditEvent) {
         LOGGER.debug("addError called for AuditEvent " + auditEvent);
-        errorMessages.add(auditEvent.getLocalizedMessage());
+        pendingMessagesFor(auditEvent.getFileName()).add(auditEvent.getLocalizedMessage());
     }
 
     @Override
@@ -55,11 +64,58 @@ class CheckstyleResultProvider implements AuditListener {
         return auditExceptions;
     }
 
+    /**
+     * @return the messages of all audited files, file by file and sorted by line within each file
+     */
     public List<LocalizedMessage> getErrorMessages() {
+        collectPendingMessages();
+        List<LocalizedMessage> errorMessages = Lists.newArrayList();
+        for (FileAuditResult result : results.values()) {
+            errorMessages.addAll(result.getMessages());
+        }
         return errorMessages;
     }
 
+    public List<LocalizedMessage> getErrorMessagesFor(String fileName) {
+        return getResultFor(fileName).getMessages();
+    }
+
+    public FileAuditResult getResultFor(String fileName) {
+        collectPendingMessages();
+        FileAuditResult result = results.get(fileName);
+        if (result == null) {
+            return FileAuditResult.empty(fileName);
+        }
+        return result;
+    }
+
+    public Map<String, FileAuditResult> getResults() {
+        collectPendingMessages();
+        return Collections.unmodifiableMap(results);
+    }
+
     public boolean hasAuditExceptions() {
         return !auditExceptions.isEmpty();
     }
+
+    private List<LocalizedMessage> pendingMessagesFor(String fileName) {
+        List<LocalizedMessage> messages = pendingMessages.get(fileName);
+        if (messages == null) {
+            messages = Lists.newArrayList();
+            pendingMessages.put(fileName, messages);
+        }
+        return messages;
+    }
+
+    private void collectPendingMessages() {
+        for (Map.Entry<String, List<LocalizedMessage>> entry : pendingMessages.entrySet()) {
+            FileAuditResult previous = results.get(entry.getKey());
+            List<LocalizedMessage> messages = entry.getValue();
+            if (previous != null) {
+                messages.addAll(previous.getMessages());
+            }
+            results.put(entry.getKey(), new FileAuditResult(entry.getKey(), messages));
+        }
+        pendingMessages.clear();
+    }
 }
@@ -0,0 +1,85 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+import de.alexanderlindhorst.sonarplugincommons.Digests;
+
+/**
+ * Keeps parsed Checkstyle configurations keyed by the hash of their XML content, so a stored configuration is only
+ * parsed again once its content changes. Handing out the same {@link Configuration} instance for unchanged content
+ * also lets the {@link CheckerPool} reuse its checkers.
+ *
+ * @author alindhorst
+ */
+public final class ConfigurationCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationCache.class);
+    private static final int MAX_ENTRIES = 4;
+    private static final ConfigurationCache DEFAULT = new ConfigurationCache(MAX_ENTRIES);
+    private final Map<String, Configuration> configurations;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ConfigurationCache(final int maxEntries) {
+        this.configurations = new LinkedHashMap<String, Configuration>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Configuration> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static ConfigurationCache getDefault() {
+        return DEFAULT;
+    }
+
+    public Configuration get(String configContent) throws CheckstyleException {
+        String contentHash = Digests.digest(configContent);
+        synchronized (configurations) {
+            Configuration configuration = configurations.get(contentHash);
+            if (configuration != null) {
+                hits.incrementAndGet();
+                return configuration;
+            }
+        }
+        misses.incrementAndGet();
+        LOGGER.debug("Parsing configuration with content hash {}", contentHash);
+        InputSource inputSource = new InputSource(new StringReader(configContent));
+        Configuration configuration = ConfigurationLoader.loadConfiguration(inputSource, null, true);
+        synchronized (configurations) {
+            Configuration concurrentlyParsed = configurations.get(contentHash);
+            if (concurrentlyParsed != null) {
+                return concurrentlyParsed;
+            }
+            configurations.put(contentHash, configuration);
+        }
+        return configuration;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public void clear() {
+        synchronized (configurations) {
+            configurations.clear();
+        }
+    }
+}
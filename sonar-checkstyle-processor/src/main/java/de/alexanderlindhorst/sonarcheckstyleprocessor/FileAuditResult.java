@@ -0,0 +1,91 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * Immutable audit result of a single file. Messages are kept sorted by line (and column), so all messages of a line
+ * can be looked up by binary search. Results are serializable, so they can be kept across sessions.
+ *
+ * @author alindhorst
+ */
+public final class FileAuditResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final String fileName;
+    private final LocalizedMessage[] messages;
+    private final int[] lineNumbers;
+
+    FileAuditResult(String fileName, Collection<LocalizedMessage> messages) {
+        this.fileName = fileName;
+        this.messages = messages.toArray(new LocalizedMessage[messages.size()]);
+        Arrays.sort(this.messages);
+        this.lineNumbers = new int[this.messages.length];
+        for (int i = 0; i < this.messages.length; i++) {
+            lineNumbers[i] = this.messages[i].getLineNo();
+        }
+    }
+
+    static FileAuditResult empty(String fileName) {
+        return new FileAuditResult(fileName, Collections.<LocalizedMessage>emptyList());
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return all messages of the file, sorted by line
+     */
+    public List<LocalizedMessage> getMessages() {
+        return Collections.unmodifiableList(Arrays.asList(messages));
+    }
+
+    public int getMessageCount() {
+        return messages.length;
+    }
+
+    public boolean isEmpty() {
+        return messages.length == 0;
+    }
+
+    /**
+     * @return the distinct line numbers having at least one message, in ascending order
+     */
+    public int[] getLineNumbers() {
+        int[] distinct = new int[lineNumbers.length];
+        int count = 0;
+        for (int i = 0; i < lineNumbers.length; i++) {
+            if (count == 0 || distinct[count - 1] != lineNumbers[i]) {
+                distinct[count++] = lineNumbers[i];
+            }
+        }
+        return Arrays.copyOf(distinct, count);
+    }
+
+    public List<LocalizedMessage> getMessagesForLine(int lineNo) {
+        int index = Arrays.binarySearch(lineNumbers, lineNo);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        int from = index;
+        while (from > 0 && lineNumbers[from - 1] == lineNo) {
+            from--;
+        }
+        int to = index + 1;
+        while (to < lineNumbers.length && lineNumbers[to] == lineNo) {
+            to++;
+        }
+        return getMessages().subList(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "FileAuditResult{" + "fileName=" + fileName + ", messages=" + messages.length + '}';
+    }
+}
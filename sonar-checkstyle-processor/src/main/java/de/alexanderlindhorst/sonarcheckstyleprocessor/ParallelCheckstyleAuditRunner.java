@@ -0,0 +1,156 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+import static de.alexanderlindhorst.sonarplugincommons.AuditWorkers.newWorkerPool;
+import static de.alexanderlindhorst.sonarplugincommons.AuditWorkers.slice;
+
+/**
+ * Audits a large set of files on a bounded pool of worker threads. The files are split into contiguous slices, one
+ * per worker, and every worker audits its slice in a single pass of its own pooled checker. The per-file results are
+ * merged afterwards.
+ * <p>
+ * Checks working on several files at once (e.g. the one for missing package documentation) only see the files of
+ * their slice, so such problems may be reported once per slice instead of once per audit.
+ *
+ * @author alindhorst
+ */
+public class ParallelCheckstyleAuditRunner implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelCheckstyleAuditRunner.class);
+    private final List<File> targetFiles;
+    private final Configuration configuration;
+    private final CheckerPool checkerPool;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final Map<File, FileAuditResult> results = Maps.newLinkedHashMap();
+    private final List<Throwable> auditExceptions = Lists.newArrayList();
+
+    public ParallelCheckstyleAuditRunner(Configuration configuration, List<File> targetFiles) throws
+            CheckstyleException {
+        this(configuration, targetFiles, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelCheckstyleAuditRunner(Configuration configuration, List<File> targetFiles, int parallelism) throws
+            CheckstyleException {
+        this(configuration, targetFiles, parallelism, null, CheckerPool.getDefault());
+    }
+
+    /**
+     * @param executor executor to run the slices on; if {@code null}, a fixed thread pool of {@code parallelism}
+     * threads is created for the audit and shut down afterwards
+     */
+    public ParallelCheckstyleAuditRunner(Configuration configuration, List<File> targetFiles, int parallelism,
+            ExecutorService executor) throws CheckstyleException {
+        this(configuration, targetFiles, parallelism, executor, CheckerPool.getDefault());
+    }
+
+    ParallelCheckstyleAuditRunner(Configuration configuration, List<File> targetFiles, int parallelism,
+            ExecutorService executor, CheckerPool checkerPool) throws CheckstyleException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, was " + parallelism);
+        }
+        Configuration localConfig = configuration;
+        if (localConfig == null) {
+            LOGGER.warn("No CheckStyle configuration given, will default to Sun Checks only");
+            localConfig = PerFileCheckstyleAuditRunner.loadSunChecksConfiguration();
+        }
+        this.targetFiles = ImmutableList.copyOf(targetFiles);
+        this.configuration = localConfig;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.checkerPool = checkerPool;
+    }
+
+    @Override
+    public void run() {
+        if (targetFiles.isEmpty()) {
+            return;
+        }
+        List<List<File>> slices = slice(targetFiles, Math.min(parallelism, targetFiles.size()));
+        LOGGER.debug("Auditing {} files in {} slices", targetFiles.size(), slices.size());
+        ExecutorService localExecutor = executor == null ? newWorkerPool("checkstyle", slices.size()) : executor;
+        try {
+            List<Future<BatchCheckstyleAuditRunner>> futures = Lists.newArrayListWithCapacity(slices.size());
+            for (List<File> slice : slices) {
+                futures.add(localExecutor.submit(new SliceAudit(slice)));
+            }
+            collectResults(futures);
+        } finally {
+            if (executor == null) {
+                localExecutor.shutdownNow();
+            }
+        }
+    }
+
+    public Map<File, FileAuditResult> getResultsByFile() {
+        return results;
+    }
+
+    public FileAuditResult getResultFor(File targetFile) {
+        FileAuditResult result = results.get(targetFile);
+        if (result == null) {
+            return FileAuditResult.empty(targetFile.getAbsolutePath());
+        }
+        return result;
+    }
+
+    public List<Throwable> getAuditExceptions() {
+        return auditExceptions;
+    }
+
+    public boolean hasAuditProblems() {
+        return !auditExceptions.isEmpty();
+    }
+
+    private void collectResults(List<Future<BatchCheckstyleAuditRunner>> futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                BatchCheckstyleAuditRunner sliceRunner = futures.get(i).get();
+                results.putAll(sliceRunner.getResultsByFile());
+                auditExceptions.addAll(sliceRunner.getAuditExceptions());
+            } catch (ExecutionException ex) {
+                LOGGER.error("Audit of slice failed", ex.getCause());
+                auditExceptions.add(ex.getCause());
+            } catch (InterruptedException ex) {
+                LOGGER.debug("Interrupted while waiting for slice audits, cancelling remaining slices");
+                for (int j = i; j < futures.size(); j++) {
+                    futures.get(j).cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private class SliceAudit implements Callable<BatchCheckstyleAuditRunner> {
+
+        private final List<File> slice;
+
+        SliceAudit(List<File> slice) {
+            this.slice = slice;
+        }
+
+        @Override
+        public BatchCheckstyleAuditRunner call() throws CheckstyleException {
+            BatchCheckstyleAuditRunner sliceRunner = new BatchCheckstyleAuditRunner(configuration, slice, checkerPool);
+            sliceRunner.run();
+            return sliceRunner;
+        }
+    }
+}
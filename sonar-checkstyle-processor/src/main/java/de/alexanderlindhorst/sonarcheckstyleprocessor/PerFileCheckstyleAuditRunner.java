@@ -20,33 +20,86 @@ import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 public class PerFileCheckstyleAuditRunner implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PerFileCheckstyleAuditRunner.class);
+    private static Configuration sunChecksConfiguration;
     private final List<File> targetFiles;
-    private final Checker checker;
+    private final CharSequence targetText;
+    private final Configuration configuration;
+    private final CheckerPool checkerPool;
     private final CheckstyleResultProvider resultProvider;
+    private boolean auditRun;
 
     public PerFileCheckstyleAuditRunner(Configuration configuration, File targetFile) throws CheckstyleException {
+        this(configuration, targetFile, CheckerPool.getDefault());
+    }
+
+    /**
+     * Audits the given text instead of the file's content on disk, e.g. the unsaved content of an editor. Messages
+     * are reported for the given file.
+     */
+    public PerFileCheckstyleAuditRunner(Configuration configuration, File targetFile, CharSequence targetText) throws
+            CheckstyleException {
+        this(configuration, targetFile, targetText, CheckerPool.getDefault());
+    }
+
+    PerFileCheckstyleAuditRunner(Configuration configuration, File targetFile, CheckerPool checkerPool) throws
+            CheckstyleException {
+        this(configuration, targetFile, null, checkerPool);
+    }
+
+    PerFileCheckstyleAuditRunner(Configuration configuration, File targetFile, CharSequence targetText,
+            CheckerPool checkerPool) throws CheckstyleException {
         Configuration localConfig = configuration;
         if (localConfig == null) {
             LOGGER.warn("No CheckStyle configuration given, will default to Sun Checks only");
             localConfig = loadSunChecksConfiguration();
         }
         this.targetFiles = Collections.singletonList(targetFile);
+        this.targetText = targetText;
         this.resultProvider = new CheckstyleResultProvider();
-        this.checker = new Checker();
-        checker.setModuleClassLoader(Checker.class.getClassLoader());
-        checker.configure(localConfig);
-        checker.addListener(resultProvider);
+        this.configuration = localConfig;
+        this.checkerPool = checkerPool;
     }
 
+    /**
+     * Borrows a checker from the pool for the audit and returns it afterwards, so a runner that's never run doesn't
+     * hold on to a pooled checker.
+     */
     @Override
     public void run() {
-        checker.process(targetFiles);
+        if (auditRun) {
+            throw new IllegalStateException("Audit has already been run");
+        }
+        auditRun = true;
+        Checker checker;
+        try {
+            checker = checkerPool.borrow(configuration);
+        } catch (CheckstyleException ex) {
+            LOGGER.error("Couldn't set up checker for audit", ex);
+            resultProvider.getAuditExceptions().add(ex);
+            return;
+        }
+        checker.addListener(resultProvider);
+        try {
+            if (targetText == null) {
+                checker.process(targetFiles);
+            } else {
+                //the pool only hands out checkers able to audit text
+                ((SourceTextChecker) checker).processText(targetFiles.get(0), targetText);
+            }
+        } finally {
+            checker.removeListener(resultProvider);
+            checkerPool.release(configuration, checker);
+        }
     }
 
     public List<LocalizedMessage> getErrorMessages() {
         return resultProvider.getErrorMessages();
     }
 
+    public FileAuditResult getResult() {
+        return resultProvider.getResultFor(targetFiles.get(0).getAbsolutePath());
+    }
+
     public List<Throwable> getAuditExceptions() {
         return resultProvider.getAuditExceptions();
     }
@@ -55,9 +108,13 @@ public class PerFileCheckstyleAuditRunner implements Runnable {
         return resultProvider.hasAuditExceptions();
     }
 
-    private static Configuration loadSunChecksConfiguration() throws CheckstyleException {
-        URL resource = PerFileCheckstyleAuditRunner.class.getResource(
-                "/de/alexanderlindhorst/sonarcheckstyleprocessor/config/sun_checks.xml");
-        return ConfigurationLoader.loadConfiguration(resource.toExternalForm(), null);
+    static synchronized Configuration loadSunChecksConfiguration() throws CheckstyleException {
+        //loaded once so that the configuration's identity stays the same for pooled checkers
+        if (sunChecksConfiguration == null) {
+            URL resource = PerFileCheckstyleAuditRunner.class.getResource(
+                    "/de/alexanderlindhorst/sonarcheckstyleprocessor/config/sun_checks.xml");
+            sunChecksConfiguration = ConfigurationLoader.loadConfiguration(resource.toExternalForm(), null);
+        }
+        return sunChecksConfiguration;
     }
 }
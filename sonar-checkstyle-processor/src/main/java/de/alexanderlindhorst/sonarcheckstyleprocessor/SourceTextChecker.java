@@ -0,0 +1,88 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * Checker that can also audit text held in memory, e.g. the unsaved content of an editor. The text is handed to the
+ * file set checks the same way {@link Checker#process(List)} hands them the content read from disk, so listeners see
+ * the very same events.
+ *
+ * @author alindhorst
+ */
+final class SourceTextChecker extends Checker {
+
+    private static final Pattern LINE_TERMINATOR = Pattern.compile("\\r\\n|\\r|\\n");
+    private final List<FileSetCheck> fileSetChecks = Lists.newArrayList();
+    private String charset = System.getProperty("file.encoding", "UTF-8");
+
+    SourceTextChecker() throws CheckstyleException {
+        super();
+    }
+
+    @Override
+    public void addFileSetCheck(FileSetCheck fileSetCheck) {
+        super.addFileSetCheck(fileSetCheck);
+        fileSetChecks.add(fileSetCheck);
+    }
+
+    @Override
+    public void setCharset(String charset) throws UnsupportedEncodingException {
+        super.setCharset(charset);
+        this.charset = charset;
+    }
+
+    /**
+     * Audits the text as the content of the given file, the file itself isn't read.
+     */
+    void processText(File file, CharSequence text) {
+        File absoluteFile = file.getAbsoluteFile();
+        String fileName = absoluteFile.getPath();
+        for (FileSetCheck fileSetCheck : fileSetChecks) {
+            fileSetCheck.beginProcessing(charset);
+        }
+        fireAuditStarted();
+        fireFileStarted(fileName);
+        TreeSet<LocalizedMessage> messages = Sets.newTreeSet();
+        FileText fileText = FileText.fromLines(absoluteFile, splitLines(text));
+        for (FileSetCheck fileSetCheck : fileSetChecks) {
+            messages.addAll(fileSetCheck.process(absoluteFile, fileText));
+        }
+        fireErrors(fileName, messages);
+        fireFileFinished(fileName);
+        for (FileSetCheck fileSetCheck : fileSetChecks) {
+            fileSetCheck.finishProcessing();
+        }
+        fireAuditFinished();
+    }
+
+    /**
+     * Splits like {@link FileText} does: any line terminator ends a line, a terminator at the very end doesn't start
+     * another one.
+     */
+    static List<String> splitLines(CharSequence text) {
+        List<String> lines = Lists.newArrayList();
+        Matcher matcher = LINE_TERMINATOR.matcher(text);
+        int position = 0;
+        while (matcher.find()) {
+            lines.add(text.subSequence(position, matcher.start()).toString());
+            position = matcher.end();
+        }
+        if (position < text.length()) {
+            lines.add(text.subSequence(position, text.length()).toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,95 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class BatchCheckstyleAuditRunnerTest {
+
+    private static File testFile;
+    private static File otherTestFile;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        testFile = new File(BatchCheckstyleAuditRunnerTest.class.getResource("/TestFile.java").toURI());
+        otherTestFile = new File(BatchCheckstyleAuditRunnerTest.class.getResource("/OtherTestFile.java").toURI());
+    }
+
+    @Test
+    public void messagesAreGroupedByFile() throws Exception {
+        BatchCheckstyleAuditRunner instance = new BatchCheckstyleAuditRunner(null, asList(testFile, otherTestFile));
+        instance.run();
+
+        Map<File, FileAuditResult> resultsByFile = instance.getResultsByFile();
+        assertThat(resultsByFile.size(), is(2));
+        assertThat(resultsByFile.get(testFile).getMessageCount(), is(8));
+        //missing package-info is reported once per directory, i.e. for the first file only
+        assertThat(resultsByFile.get(otherTestFile).getMessageCount(), is(1));
+    }
+
+    @Test
+    public void resultsAreSortedByLine() throws Exception {
+        BatchCheckstyleAuditRunner instance = new BatchCheckstyleAuditRunner(null, asList(otherTestFile, testFile));
+        instance.run();
+
+        FileAuditResult result = instance.getResultFor(testFile);
+        int previousLine = 0;
+        for (LocalizedMessage message : result.getMessages()) {
+            assertThat(message.getLineNo() >= previousLine, is(true));
+            previousLine = message.getLineNo();
+        }
+        int messagesOnLines = 0;
+        for (int lineNo : result.getLineNumbers()) {
+            List<LocalizedMessage> messages = result.getMessagesForLine(lineNo);
+            assertThat(messages.isEmpty(), is(false));
+            messagesOnLines += messages.size();
+        }
+        assertThat(messagesOnLines, is(result.getMessageCount()));
+        assertThat(result.getMessagesForLine(Integer.MAX_VALUE).isEmpty(), is(true));
+    }
+
+    @Test
+    public void emptyBatchYieldsNoMessages() throws Exception {
+        BatchCheckstyleAuditRunner instance = new BatchCheckstyleAuditRunner(null, Collections.<File>emptyList());
+        instance.run();
+
+        assertThat(instance.getResultsByFile().isEmpty(), is(true));
+        assertThat(instance.hasAuditProblems(), is(false));
+    }
+
+    @Test
+    public void resultSurvivesSerialization() throws Exception {
+        BatchCheckstyleAuditRunner instance = new BatchCheckstyleAuditRunner(null, asList(testFile));
+        instance.run();
+        FileAuditResult result = instance.getResultFor(testFile);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(result);
+        out.close();
+        FileAuditResult restored = (FileAuditResult) new ObjectInputStream(new ByteArrayInputStream(
+                bytes.toByteArray())).readObject();
+
+        assertThat(restored.getMessageCount(), is(result.getMessageCount()));
+        assertThat(restored.getLineNumbers(), is(result.getLineNumbers()));
+        assertThat(restored.getMessages().get(0).getMessage(), is(result.getMessages().get(0).getMessage()));
+    }
+}
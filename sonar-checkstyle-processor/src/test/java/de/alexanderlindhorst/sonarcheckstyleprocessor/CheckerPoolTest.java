@@ -0,0 +1,100 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.File;
+import java.net.URL;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class CheckerPoolTest {
+
+    private static URL testFileResourceURL;
+    private CheckerPool pool;
+
+    @BeforeClass
+    public static void setUpClass() {
+        testFileResourceURL = CheckerPoolTest.class.getResource("/TestFile.java");
+    }
+
+    @Before
+    public void setUp() {
+        pool = new CheckerPool(2, 1);
+    }
+
+    @Test
+    public void releasedCheckerIsHandedOutAgain() throws Exception {
+        Configuration configuration = sunChecks();
+        new PerFileCheckstyleAuditRunner(null, testFile(), pool).run();
+
+        assertThat(pool.getIdleCount(configuration), is(1));
+
+        Checker first = pool.borrow(configuration);
+        Checker second = pool.borrow(configuration);
+        assertThat(first, is(not(sameInstance(second))));
+        assertThat(pool.getIdleCount(configuration), is(0));
+    }
+
+    @Test
+    public void pooledCheckerYieldsSameResults() throws Exception {
+        PerFileCheckstyleAuditRunner first = new PerFileCheckstyleAuditRunner(null, testFile(), pool);
+        first.run();
+        PerFileCheckstyleAuditRunner second = new PerFileCheckstyleAuditRunner(null, testFile(), pool);
+        second.run();
+
+        assertThat(second.getErrorMessages().size(), is(first.getErrorMessages().size()));
+        assertThat(second.getErrorMessages().size(), is(8));
+    }
+
+    @Test
+    public void idleCheckersAreBounded() throws Exception {
+        Configuration configuration = sunChecks();
+        PerFileCheckstyleAuditRunner runner = new PerFileCheckstyleAuditRunner(null, testFile(), pool);
+        Checker checker = pool.borrow(configuration);
+        runner.run();
+        pool.release(configuration, checker);
+
+        assertThat(pool.getIdleCount(configuration), is(1));
+    }
+
+    @Test
+    public void checkerIsOnlyBorrowedWhileRunning() throws Exception {
+        Configuration configuration = sunChecks();
+        Checker idle = pool.borrow(configuration);
+        pool.release(configuration, idle);
+
+        PerFileCheckstyleAuditRunner runner = new PerFileCheckstyleAuditRunner(null, testFile(), pool);
+        assertThat(pool.getIdleCount(configuration), is(1));
+        runner.run();
+
+        assertThat(pool.getIdleCount(configuration), is(1));
+        assertThat(pool.borrow(configuration), is(sameInstance(idle)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runnerCannotBeRunTwice() throws Exception {
+        PerFileCheckstyleAuditRunner runner = new PerFileCheckstyleAuditRunner(null, testFile(), pool);
+        runner.run();
+        runner.run();
+    }
+
+    private static File testFile() throws Exception {
+        return new File(testFileResourceURL.toURI());
+    }
+
+    private static Configuration sunChecks() throws Exception {
+        return PerFileCheckstyleAuditRunner.loadSunChecksConfiguration();
+    }
+}
@@ -0,0 +1,57 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.InputStream;
+import java.util.Scanner;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class ConfigurationCacheTest {
+
+    private static String configContent;
+    private ConfigurationCache cache;
+
+    @BeforeClass
+    public static void setUpClass() {
+        InputStream stream = ConfigurationCacheTest.class.getResourceAsStream(
+                "/de/alexanderlindhorst/sonarcheckstyleprocessor/config/sun_checks.xml");
+        configContent = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    }
+
+    @Before
+    public void setUp() {
+        cache = new ConfigurationCache(1);
+    }
+
+    @Test
+    public void unchangedContentIsParsedOnce() throws Exception {
+        Configuration first = cache.get(configContent);
+        Configuration second = cache.get(new String(configContent));
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void changedContentIsParsedAgain() throws Exception {
+        Configuration first = cache.get(configContent);
+        Configuration second = cache.get(configContent + "\n");
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getHitCount(), is(0L));
+    }
+}
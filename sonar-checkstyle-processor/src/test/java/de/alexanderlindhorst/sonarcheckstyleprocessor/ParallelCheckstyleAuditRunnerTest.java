@@ -0,0 +1,44 @@
+package de.alexanderlindhorst.sonarcheckstyleprocessor;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class ParallelCheckstyleAuditRunnerTest {
+
+    private static File testFile;
+    private static File otherTestFile;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        testFile = new File(ParallelCheckstyleAuditRunnerTest.class.getResource("/TestFile.java").toURI());
+        otherTestFile = new File(ParallelCheckstyleAuditRunnerTest.class.getResource("/OtherTestFile.java").toURI());
+    }
+
+    @Test
+    public void resultsOfAllSlicesAreMerged() throws Exception {
+        ParallelCheckstyleAuditRunner instance = new ParallelCheckstyleAuditRunner(null,
+                asList(testFile, otherTestFile, testFile), 2);
+        instance.run();
+
+        Map<File, FileAuditResult> resultsByFile = instance.getResultsByFile();
+        assertThat(resultsByFile.size(), is(2));
+        assertThat(instance.getResultFor(testFile).getMessageCount(), is(8));
+        assertThat(instance.hasAuditProblems(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelismMustBePositive() throws Exception {
+        new ParallelCheckstyleAuditRunner(null, asList(testFile), 0);
+    }
+}
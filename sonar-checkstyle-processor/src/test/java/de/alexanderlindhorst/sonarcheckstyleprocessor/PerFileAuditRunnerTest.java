@@ -1,14 +1,14 @@
 package de.alexanderlindhorst.sonarcheckstyleprocessor;
 
 import java.io.File;
-import java.lang.reflect.Field;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Scanner;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
 
@@ -31,13 +31,14 @@ public class PerFileAuditRunnerTest {
 
     @Test
     public void checkNullConfigurationIsSubstitutedBySunChecks() throws Exception {
-        PerFileCheckstyleAuditRunner instance = new PerFileCheckstyleAuditRunner(null, new File(testFileResourceURL.toURI()));
-        Checker checker = getFieldValueFromObject(PerFileCheckstyleAuditRunner.class, instance, "checker");
-
-        assertThat(checker, is(notNullValue()));
+        CheckerPool pool = new CheckerPool(1, 1);
+        PerFileCheckstyleAuditRunner instance = new PerFileCheckstyleAuditRunner(null,
+                new File(testFileResourceURL.toURI()), pool);
+        instance.run();
 
-        Configuration configuration = getFieldValueFromObject(Checker.class, checker, "mConfiguration");
+        Configuration configuration = PerFileCheckstyleAuditRunner.loadSunChecksConfiguration();
         assertThat(configuration, is(notNullValue()));
+        assertThat(pool.getIdleCount(configuration), is(1));
     }
 
     @Test
@@ -48,25 +49,37 @@ public class PerFileAuditRunnerTest {
         assertThat(instance.getErrorMessages().size(), is(8));
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes", "cast"})
-    private static <T> T getFieldValueFromObject(Class clazz, Object instance, String fieldName) throws
-            NoSuchFieldException,
-            IllegalArgumentException, IllegalAccessException {
-        Field field;
+    @Test
+    public void checkTextIsAuditedInsteadOfFileContent() throws Exception {
+        File testFile = new File(testFileResourceURL.toURI());
+        String text = readText(testFile);
+        PerFileCheckstyleAuditRunner instance = new PerFileCheckstyleAuditRunner(null, testFile, text);
+        instance.run();
+
+        assertThat(instance.getErrorMessages().size(), is(8));
+        assertThat(instance.getResult().getFileName(), is(testFile.getAbsolutePath()));
+
+        //unsaved change: a trailing tab character is reported both as tab and as trailing whitespace
+        instance = new PerFileCheckstyleAuditRunner(null, testFile, text.replaceFirst("\\{", "{\t"));
+        instance.run();
+
+        assertThat(instance.getErrorMessages().size(), is(10));
+    }
+
+    @Test
+    public void checkLinesAreSplitLikeCheckstyleDoes() {
+        assertThat(SourceTextChecker.splitLines("a\r\nb\rc\nd").size(), is(4));
+        assertThat(SourceTextChecker.splitLines("a\n").size(), is(1));
+        assertThat(SourceTextChecker.splitLines("a\n\n").size(), is(2));
+        assertThat(SourceTextChecker.splitLines("").size(), is(0));
+    }
+
+    private static String readText(File file) throws IOException {
+        Scanner scanner = new Scanner(file, "UTF-8");
         try {
-            field = clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException noSuchFieldException) {
-            field = null;
-        }
-        if (field == null) {
-            Class parentClass = clazz.getSuperclass();
-            if (parentClass != null) {
-                return getFieldValueFromObject(parentClass, instance, fieldName);
-            }
-        } else {
-            field.setAccessible(true);
-            return (T) field.get(instance);
+            return scanner.useDelimiter("\\A").next();
+        } finally {
+            scanner.close();
         }
-        return null;
     }
-}
\ No newline at end of file
+}
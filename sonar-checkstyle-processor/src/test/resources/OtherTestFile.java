@@ -0,0 +1,9 @@
+
+/**
+ * Second file for multi-file audits.
+ */
+public final class OtherTestFile {
+
+    private OtherTestFile() {
+    }
+}
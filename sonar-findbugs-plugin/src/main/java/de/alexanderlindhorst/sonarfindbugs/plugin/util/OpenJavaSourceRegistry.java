@@ -1,8 +1,11 @@
 package de.alexanderlindhorst.sonarfindbugs.plugin.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.api.java.source.JavaSource;
@@ -17,73 +20,61 @@ import org.openide.loaders.DataObject;
 import org.openide.loaders.DataObjectNotFoundException;
 import org.openide.text.Line;
 import org.openide.util.Exceptions;
-import org.openide.windows.TopComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Maps;
-
 import de.alexanderlindhorst.sonarfindbugs.plugin.annotation.SonarFindBugsAnnotation;
 import de.alexanderlindhorst.sonarfindbugsprocessor.FindbugsResultProvider;
 
 import edu.umd.cs.findbugs.BugInstance;
 
-import static de.alexanderlindhorst.sonarfindbugs.plugin.util.SonarFindBugsPluginUtils.getUnderlyingFile;
-import static de.alexanderlindhorst.sonarfindbugs.plugin.util.SonarFindBugsPluginUtils.getUnderlyingJavaFile;
-
 /**
  * @author lindhrst (original author)
  */
 public final class OpenJavaSourceRegistry {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenJavaSourceRegistry.class);
-    private static final Map<JavaSource, List<SonarFindBugsAnnotation>> ANNOTATION_REGISTRY = Maps.newHashMap();
-    private static final Map<TopComponent, JavaSource> TOP_COMPONENT_REGISTRY = Maps.newHashMap();
+    private static final ConcurrentMap<JavaSource, List<SonarFindBugsAnnotation>> ANNOTATION_REGISTRY
+            = new ConcurrentHashMap<JavaSource, List<SonarFindBugsAnnotation>>();
 
     private OpenJavaSourceRegistry() {
         //utility class
     }
 
-    public static boolean isKnownTopComponent(TopComponent component) {
-        return TOP_COMPONENT_REGISTRY.containsKey(component);
-    }
-
-    public static boolean isKnownJavaSource(JavaSource source) {
-        return TOP_COMPONENT_REGISTRY.values().contains(source) && ANNOTATION_REGISTRY.containsKey(source);
+    public static void markFileOpened(FileObject fileObject) {
+        JavaSource source = JavaSource.forFileObject(fileObject);
+        if (source == null) {
+            LOGGER.debug("{} is no Java source, won't register", fileObject);
+            return;
+        }
+        //copy on write, as annotations are added by audits while the editor's closing detaches them
+        ANNOTATION_REGISTRY.putIfAbsent(source, new CopyOnWriteArrayList<SonarFindBugsAnnotation>());
     }
 
-    public static void markTopComponentOpened(TopComponent topComponent) {
-        JavaSource source = getUnderlyingJavaFile(topComponent);
-        List<SonarFindBugsAnnotation> annotations = ANNOTATION_REGISTRY.get(source);
-        if (annotations == null) {
-            annotations = new ArrayList<SonarFindBugsAnnotation>();
-            ANNOTATION_REGISTRY.put(source, annotations);
+    public static void markFileClosed(FileObject fileObject) {
+        JavaSource source = JavaSource.forFileObject(fileObject);
+        if (source == null) {
+            return;
         }
-        if (!TOP_COMPONENT_REGISTRY.keySet().contains(topComponent)) {
-            TOP_COMPONENT_REGISTRY.put(topComponent, source);
+        List<SonarFindBugsAnnotation> annotations = ANNOTATION_REGISTRY.remove(source);
+        if (annotations != null) {
+            detach(annotations);
         }
-        FileObject underlyingFile = getUnderlyingFile(topComponent);
-        clearOldAnnotationsFor(source);
-        applyAnnotationsFor(underlyingFile);
-    }
-
-    public static void markTopComponentClosed(TopComponent topComponent) {
-        JavaSource source = TOP_COMPONENT_REGISTRY.get(topComponent);
-        clearOldAnnotationsFor(source);
-        ANNOTATION_REGISTRY.remove(source);
-        TOP_COMPONENT_REGISTRY.remove(topComponent);
     }
 
     public static void applyAnnotationsFor(FileObject fileObject) {
         JavaSource source = JavaSource.forFileObject(fileObject);
-        List<SonarFindBugsAnnotation> annotations = ANNOTATION_REGISTRY.get(source);
-
-        FindbugsResultProvider resultProvider = processFile(fileObject);
-        if (resultProvider == null) {
+        List<SonarFindBugsAnnotation> annotations = source == null ? null : ANNOTATION_REGISTRY.get(source);
+        if (annotations == null) {
+            LOGGER.debug("{} is not known (anymore), won't annotate", fileObject);
+            return;
+        }
+        Collection<BugInstance> issues = auditFile(fileObject);
+        if (issues == null) {
             return;
         }
         Line.Set lineSet = getLineCookieFromFileObject(fileObject).getLineSet();
-        for (BugInstance bugInstance : resultProvider.getIssues()) {
+        for (BugInstance bugInstance : issues) {
             int targetIndex = bugInstance.getPrimarySourceLineAnnotation().getStartLine();
             if (targetIndex < 0) {
                 targetIndex = 0;
@@ -98,19 +89,36 @@ public final class OpenJavaSourceRegistry {
     public static void clearOldAnnotationsFor(FileObject fileObject) {
         LOGGER.debug("Attempting to clean annotations for {}", fileObject);
         JavaSource source = JavaSource.forFileObject(fileObject);
-        clearOldAnnotationsFor(source);
-    }
-
-    private static void clearOldAnnotationsFor(JavaSource source) {
-        List<SonarFindBugsAnnotation> registeredAnnotations = ANNOTATION_REGISTRY.get(source);
+        List<SonarFindBugsAnnotation> registeredAnnotations = source == null ? null : ANNOTATION_REGISTRY.get(source);
         if (registeredAnnotations == null) {
             LOGGER.debug("Nothing to clear");
             return;
         }
-        for (SonarFindBugsAnnotation annotation : registeredAnnotations) {
+        detach(registeredAnnotations);
+    }
+
+    /**
+     * Detaches and removes the annotations registered so far; annotations added concurrently aren't lost, they're
+     * removed by the next call.
+     */
+    private static void detach(List<SonarFindBugsAnnotation> annotations) {
+        List<SonarFindBugsAnnotation> detached = new ArrayList<SonarFindBugsAnnotation>(annotations);
+        for (SonarFindBugsAnnotation annotation : detached) {
             annotation.detach();
         }
-        registeredAnnotations.clear();
+        annotations.removeAll(detached);
+    }
+
+    /**
+     * FindBugs analyzes the compiled classes rather than the source, so its results aren't cached by the source's
+     * content: they change with every recompile of the class or its dependencies.
+     */
+    private static Collection<BugInstance> auditFile(FileObject fileObject) {
+        FindbugsResultProvider resultProvider = processFile(fileObject);
+        if (resultProvider == null) {
+            return null;
+        }
+        return resultProvider.getIssues();
     }
 
     private static FindbugsResultProvider processFile(FileObject fileObject) {
@@ -0,0 +1,52 @@
+package de.alexanderlindhorst.sonarfindbugs.plugin.util;
+
+import org.openide.filesystems.FileObject;
+import org.openide.util.lookup.ServiceProvider;
+
+import de.alexanderlindhorst.sonaranalysiscore.Analyzer;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+
+/**
+ * Plugs FindBugs into the analysis core.
+ *
+ * @author alindhorst
+ */
+@ServiceProvider(service = Analyzer.class)
+public class SonarFindBugsAnalyzer implements Analyzer {
+
+    @Override
+    public void fileOpened(FileObject fileObject) {
+        OpenJavaSourceRegistry.markFileOpened(fileObject);
+    }
+
+    @Override
+    public void analyze(SourceSnapshot snapshot) {
+        OpenJavaSourceRegistry.clearOldAnnotationsFor(snapshot.getFileObject());
+        OpenJavaSourceRegistry.applyAnnotationsFor(snapshot.getFileObject());
+    }
+
+    @Override
+    public void fileClosed(FileObject fileObject) {
+        OpenJavaSourceRegistry.markFileClosed(fileObject);
+    }
+
+    @Override
+    public void invalidateResultsFor(FileObject fileObject) {
+        //audits aren't superseded, each one runs to completion
+    }
+
+    @Override
+    public boolean isLiveAuditEnabled() {
+        return false;
+    }
+
+    @Override
+    public String getConfiguration() {
+        return SonarFindBugsPluginUtils.loadConfigurationContent();
+    }
+
+    @Override
+    public String toString() {
+        return "FindBugs";
+    }
+}
@@ -0,0 +1,74 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Difference between the annotations attached to a file and the violations found by a new audit of it. Only the
+ * obsolete annotations have to be detached and only the added violations attached, all others stay as they are.
+ *
+ * @param <A> type of the annotation
+ * @author alindhorst
+ */
+public final class AnnotationDiff<A> {
+
+    private final List<A> obsolete;
+    private final Map<ViolationKey, A> kept;
+    private final Set<ViolationKey> added;
+
+    private AnnotationDiff(List<A> obsolete, Map<ViolationKey, A> kept, Set<ViolationKey> added) {
+        this.obsolete = obsolete;
+        this.kept = kept;
+        this.added = added;
+    }
+
+    /**
+     * @param attached the annotations currently attached, by the violation they show
+     * @param found the violations found by the new audit
+     */
+    public static <A> AnnotationDiff<A> between(Map<ViolationKey, A> attached, Collection<ViolationKey> found) {
+        Set<ViolationKey> foundKeys = new LinkedHashSet<ViolationKey>(found);
+        List<A> obsolete = new ArrayList<A>();
+        Map<ViolationKey, A> kept = new LinkedHashMap<ViolationKey, A>();
+        for (Map.Entry<ViolationKey, A> entry : attached.entrySet()) {
+            if (foundKeys.remove(entry.getKey())) {
+                kept.put(entry.getKey(), entry.getValue());
+            } else {
+                obsolete.add(entry.getValue());
+            }
+        }
+        return new AnnotationDiff<A>(Collections.unmodifiableList(obsolete), Collections.unmodifiableMap(kept),
+                Collections.unmodifiableSet(foundKeys));
+    }
+
+    /**
+     * @return annotations of violations that weren't found again
+     */
+    public List<A> getObsolete() {
+        return obsolete;
+    }
+
+    /**
+     * @return annotations of violations found again, by the violation they show
+     */
+    public Map<ViolationKey, A> getKept() {
+        return kept;
+    }
+
+    /**
+     * @return violations found that aren't annotated yet, in the order they were found
+     */
+    public Set<ViolationKey> getAdded() {
+        return added;
+    }
+
+    public boolean isEmpty() {
+        return obsolete.isEmpty() && added.isEmpty();
+    }
+}
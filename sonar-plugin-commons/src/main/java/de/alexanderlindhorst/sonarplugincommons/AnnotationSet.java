@@ -0,0 +1,47 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The annotations attached to one file. The set is never modified in place, an update swaps the whole set at once, so
+ * readers on other threads always see a complete set and concurrent updates can't lose each other's annotations.
+ *
+ * @param <A> type of the annotation
+ * @author alindhorst
+ */
+public final class AnnotationSet<A> {
+
+    private final AtomicReference<Map<ViolationKey, A>> annotations = new AtomicReference<Map<ViolationKey, A>>(
+            Collections.<ViolationKey, A>emptyMap());
+
+    /**
+     * @return the annotations currently attached, by the violation they show; unmodifiable
+     */
+    public Map<ViolationKey, A> get() {
+        return annotations.get();
+    }
+
+    /**
+     * Replaces the annotations, unless the set has been changed since {@code expected} was read.
+     *
+     * @param expected the annotations as returned by {@link #get()}
+     * @return false if the set has been changed in the meantime and nothing was replaced
+     */
+    public boolean swap(Map<ViolationKey, A> expected, Map<ViolationKey, A> updated) {
+        return annotations.compareAndSet(expected,
+                Collections.unmodifiableMap(new LinkedHashMap<ViolationKey, A>(updated)));
+    }
+
+    /**
+     * Empties the set.
+     *
+     * @return the annotations that were attached, to be detached by the caller
+     */
+    public Collection<A> clear() {
+        return annotations.getAndSet(Collections.<ViolationKey, A>emptyMap()).values();
+    }
+}
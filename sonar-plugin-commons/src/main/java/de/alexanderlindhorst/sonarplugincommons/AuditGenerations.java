@@ -0,0 +1,42 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generation numbers per audited file. Every audit request and every change of the file starts a new generation; an
+ * audit whose generation isn't the current one anymore has been superseded and its result must be dropped.
+ *
+ * @param <K> type identifying the audited file
+ * @author alindhorst
+ */
+public final class AuditGenerations<K> {
+
+    //numbered across all keys, so a key that was removed and comes back doesn't reuse old generations
+    private final AtomicLong lastGeneration = new AtomicLong();
+    private final ConcurrentMap<K, Long> generations = new ConcurrentHashMap<K, Long>();
+
+    /**
+     * Starts a new generation for the key, superseding all earlier ones.
+     *
+     * @return the new generation
+     */
+    public long next(K key) {
+        long generation = lastGeneration.incrementAndGet();
+        generations.put(key, generation);
+        return generation;
+    }
+
+    public boolean isCurrent(K key, long generation) {
+        Long current = generations.get(key);
+        return current != null && current.longValue() == generation;
+    }
+
+    /**
+     * Forgets the key, superseding all of its generations.
+     */
+    public void remove(K key) {
+        generations.remove(key);
+    }
+}
@@ -0,0 +1,58 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers for audits of large file sets split up between worker threads.
+ *
+ * @author alindhorst
+ */
+public final class AuditWorkers {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private AuditWorkers() {
+        //utility class
+    }
+
+    /**
+     * Splits the elements into contiguous slices whose sizes differ by one at most, keeping their order.
+     *
+     * @return views of the given list
+     */
+    public static <T> List<List<T>> slice(List<T> elements, int sliceCount) {
+        List<List<T>> slices = new ArrayList<List<T>>(sliceCount);
+        int baseSize = elements.size() / sliceCount;
+        int remainder = elements.size() % sliceCount;
+        int from = 0;
+        for (int i = 0; i < sliceCount; i++) {
+            int to = from + baseSize + (i < remainder ? 1 : 0);
+            slices.add(elements.subList(from, to));
+            from = to;
+        }
+        return slices;
+    }
+
+    /**
+     * @param tool name of the auditing tool, used to name the threads
+     * @return a fixed pool of low priority daemon threads, so audits neither keep the IDE from exiting nor slow down
+     * editing
+     */
+    public static ExecutorService newWorkerPool(String tool, int threads) {
+        final String namePrefix = tool + " audit worker ";
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+}
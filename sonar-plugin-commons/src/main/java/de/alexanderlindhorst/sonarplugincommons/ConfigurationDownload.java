@@ -0,0 +1,164 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * A configuration downloaded from a server along with the validators the server sent for it. Passing them to the
+ * next download makes it conditional: a server supporting ETag or Last-Modified answers 304 Not Modified rather than
+ * sending the same configuration again.
+ *
+ * @author alindhorst
+ */
+public final class ConfigurationDownload {
+
+    public static final int TIMEOUT = 30000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CHARSET_PARAMETER = "charset=";
+    private final String content;
+    private final String entityTag;
+    private final String lastModified;
+
+    public ConfigurationDownload(String content, String entityTag, String lastModified) {
+        this.content = content;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Downloads the configuration unless the copy at hand is current. Validators are only sent to HTTP servers, any
+     * other URL is always read completely.
+     *
+     * @param entityTag the ETag sent along with the copy at hand, {@code null} if none
+     * @param lastModified the Last-Modified date sent along with the copy at hand, {@code null} if none
+     * @return the configuration or {@code null} if the server reports the copy at hand to be current
+     * @throws IOException if the configuration can't be downloaded or the server answers anything but OK or Not
+     * Modified
+     */
+    public static ConfigurationDownload fetch(URL url, String entityTag, String lastModified) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        if (!(connection instanceof HttpURLConnection)) {
+            return read(connection);
+        }
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        boolean read = false;
+        try {
+            if (entityTag != null) {
+                httpConnection.setRequestProperty("If-None-Match", entityTag);
+            }
+            if (lastModified != null) {
+                httpConnection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+            int status = httpConnection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server answered " + status + " for " + url);
+            }
+            ConfigurationDownload download = read(httpConnection);
+            read = true;
+            return download;
+        } finally {
+            if (!read) {
+                discard(httpConnection);
+            }
+        }
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return the ETag sent by the server, {@code null} if none
+     */
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * @return the Last-Modified date sent by the server, unparsed, {@code null} if none
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    private static ConfigurationDownload read(URLConnection connection) throws IOException {
+        InputStream stream = connection.getInputStream();
+        try {
+            Reader reader = new InputStreamReader(stream, charsetOf(connection));
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                builder.append(buffer, 0, read);
+            }
+            return new ConfigurationDownload(builder.toString(), connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"));
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads and closes whatever body came along with a response that isn't used, then releases the connection.
+     */
+    private static void discard(HttpURLConnection connection) {
+        try {
+            InputStream stream = connection.getErrorStream();
+            if (stream == null) {
+                stream = connection.getInputStream();
+            }
+            try {
+                byte[] buffer = new byte[8192];
+                while (stream.read(buffer) >= 0) {
+                    //drain
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (IOException ex) {
+            //no body or connection already broken, nothing to drain
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return the charset given by the content type, UTF-8 if there is none
+     */
+    private static Charset charsetOf(URLConnection connection) {
+        String contentType = connection.getContentType();
+        if (contentType == null) {
+            return UTF_8;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ENGLISH).startsWith(CHARSET_PARAMETER)) {
+                try {
+                    return Charset.forName(trimmed.substring(CHARSET_PARAMETER.length()).replace("\"", ""));
+                } catch (IllegalArgumentException ex) {
+                    //unknown charset
+                    return UTF_8;
+                }
+            }
+        }
+        return UTF_8;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationDownload{" + "length=" + content.length() + ", entityTag=" + entityTag
+                + ", lastModified=" + lastModified + '}';
+    }
+}
@@ -0,0 +1,43 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content digests used to tell whether sources or configurations have changed.
+ *
+ * @author alindhorst
+ */
+public final class Digests {
+
+    private static final String ALGORITHM = "SHA-1";
+
+    private Digests() {
+        //utility class
+    }
+
+    public static String digest(byte[] content) {
+        try {
+            return toHex(MessageDigest.getInstance(ALGORITHM).digest(content));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ALGORITHM + " not supported by this runtime", ex);
+        }
+    }
+
+    public static String digest(String content) {
+        try {
+            return digest(content.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 not supported by this runtime", ex);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte value : hash) {
+            builder.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of audit results keyed by {@link ResultKey}. A hit means the file doesn't have to be audited at all,
+ * e.g. after it was only touched or checked out again with the same content. The least recently used results are
+ * dropped first.
+ * <p>
+ * A cache may be backed by a {@link ResultStore}: results are then written through to the store, and results missing
+ * in memory are looked up there, so files audited in an earlier session of the IDE don't have to be audited again.
+ *
+ * @param <R> type of the cached audit result
+ * @author alindhorst
+ */
+public final class ResultCache<R> {
+
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultCache.class);
+    private final Map<ResultKey, R> results;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ResultStore store;
+    private final ResultCodec<R> codec;
+
+    public ResultCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResultCache(int maxEntries) {
+        this(maxEntries, null, null);
+    }
+
+    /**
+     * @param store store to write results through to, {@code null} to keep results in memory only
+     * @param codec codec turning results into the store's bytes and back
+     */
+    public ResultCache(final int maxEntries, ResultStore store, ResultCodec<R> codec) {
+        if (store != null && codec == null) {
+            throw new IllegalArgumentException("a store needs a codec");
+        }
+        this.store = store;
+        this.codec = codec;
+        this.results = new LinkedHashMap<ResultKey, R>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ResultKey, R> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the cached result or {@code null} if there is none for the given key
+     */
+    public R get(ResultKey key) {
+        R result;
+        synchronized (results) {
+            result = results.get(key);
+        }
+        if (result == null) {
+            result = restore(key);
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+        } else {
+            LOGGER.debug("Cache hit for {}", key);
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    public void put(ResultKey key, R result) {
+        putInMemory(key, result);
+        if (store != null) {
+            try {
+                store.put(key, codec.encode(result));
+            } catch (IOException ex) {
+                LOGGER.warn("Couldn't store result for {}", key, ex);
+            }
+        }
+    }
+
+    /**
+     * Caches the result without writing it through to the store, e.g. the result of auditing unsaved content that's
+     * unlikely to be seen again, so it doesn't push results of saved files out of the store.
+     */
+    public void putInMemory(ResultKey key, R result) {
+        if (result == null) {
+            throw new IllegalArgumentException("result must not be null");
+        }
+        synchronized (results) {
+            results.put(key, result);
+        }
+    }
+
+    /**
+     * Drops the results held in memory, results in the backing store are kept.
+     */
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private R restore(ResultKey key) {
+        if (store == null) {
+            return null;
+        }
+        R result;
+        try {
+            byte[] data = store.get(key);
+            if (data == null) {
+                return null;
+            }
+            result = codec.decode(data);
+        } catch (IOException ex) {
+            LOGGER.warn("Couldn't restore stored result for {}", key, ex);
+            return null;
+        }
+        LOGGER.debug("Restored stored result for {}", key);
+        synchronized (results) {
+            results.put(key, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.IOException;
+
+/**
+ * Turns audit results into bytes for a {@link ResultStore} and back.
+ *
+ * @param <R> type of the audit result
+ * @author alindhorst
+ */
+public interface ResultCodec<R> {
+
+    byte[] encode(R result) throws IOException;
+
+    R decode(byte[] data) throws IOException;
+}
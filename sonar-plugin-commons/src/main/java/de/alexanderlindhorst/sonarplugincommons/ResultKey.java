@@ -0,0 +1,72 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+/**
+ * Identifies the outcome of an audit: the same file content audited with the same configuration by the same tool
+ * version yields the same violations.
+ *
+ * @author alindhorst
+ */
+public final class ResultKey {
+
+    private final String contentDigest;
+    private final String configurationDigest;
+    private final String toolVersion;
+
+    public ResultKey(String contentDigest, String configurationDigest, String toolVersion) {
+        if (contentDigest == null || configurationDigest == null || toolVersion == null) {
+            throw new IllegalArgumentException("digests and tool version must not be null");
+        }
+        this.contentDigest = contentDigest;
+        this.configurationDigest = configurationDigest;
+        this.toolVersion = toolVersion;
+    }
+
+    /**
+     * @param configuration the configuration's content, {@code null} if the tool's default configuration is used
+     * @param toolVersion version of the auditing tool, {@code null} if unknown
+     */
+    public static ResultKey of(byte[] content, String configuration, String toolVersion) {
+        return new ResultKey(Digests.digest(content), configuration == null ? "" : Digests.digest(configuration),
+                toolVersion == null ? "" : toolVersion);
+    }
+
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    public String getConfigurationDigest() {
+        return configurationDigest;
+    }
+
+    public String getToolVersion() {
+        return toolVersion;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 41 * hash + contentDigest.hashCode();
+        hash = 41 * hash + configurationDigest.hashCode();
+        hash = 41 * hash + toolVersion.hashCode();
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final ResultKey other = (ResultKey) obj;
+        return contentDigest.equals(other.contentDigest) && configurationDigest.equals(other.configurationDigest)
+                && toolVersion.equals(other.toolVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultKey{" + "contentDigest=" + contentDigest + ", configurationDigest=" + configurationDigest
+                + ", toolVersion=" + toolVersion + '}';
+    }
+}
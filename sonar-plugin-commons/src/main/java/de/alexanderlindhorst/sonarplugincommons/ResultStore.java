@@ -0,0 +1,273 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent store of encoded audit results, so results survive a restart of the IDE. Results are appended to
+ * segment files in a directory of their own and read back by positional reads of the segment's channel, so no mapping
+ * keeps a segment from being cut off or deleted. Once a segment is full, a new one is started; once there are too
+ * many, the oldest segment is dropped along with all results in it.
+ * <p>
+ * The index of the stored results is rebuilt by scanning the segments when the store is opened. A record that was
+ * only partially written (e.g. because the IDE was killed) ends the scan of its segment and is cut off.
+ *
+ * @author alindhorst
+ */
+public final class ResultStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultStore.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final int RECORD_MARKER = 0x534e5652;
+    private static final int HEADER_SIZE = 12;
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+    private final Map<String, Location> index = new HashMap<String, Location>();
+    private boolean closed;
+
+    public ResultStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public ResultStore(File directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < 1 || maxSegments < 1) {
+            throw new IllegalArgumentException("segment size and count must be positive");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create store directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        openSegments();
+    }
+
+    /**
+     * @return the stored data or {@code null} if nothing is stored for the key
+     */
+    public synchronized byte[] get(ResultKey key) throws IOException {
+        ensureOpen();
+        Location location = index.get(toIndexKey(key));
+        if (location == null) {
+            return null;
+        }
+        return segments.get(location.segmentNumber).read(location.offset, location.length);
+    }
+
+    /**
+     * Stores the data for the key unless there is data for it already; as the key identifies the audited content, the
+     * configuration and the tool, the result can't differ anyway.
+     */
+    public synchronized void put(ResultKey key, byte[] data) throws IOException {
+        ensureOpen();
+        String indexKey = toIndexKey(key);
+        if (index.containsKey(indexKey)) {
+            return;
+        }
+        byte[] keyBytes = indexKey.getBytes(UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + data.length);
+        record.putInt(RECORD_MARKER).putInt(keyBytes.length).putInt(data.length).put(keyBytes).put(data);
+        record.flip();
+        Segment segment = segments.lastEntry().getValue();
+        if (segment.size > 0 && segment.size + record.remaining() > segmentSize) {
+            segment = startSegment(segment.number + 1);
+        }
+        int offset = segment.append(record);
+        index.put(indexKey, new Location(segment.number, offset + HEADER_SIZE + keyBytes.length, data.length));
+    }
+
+    public synchronized boolean contains(ResultKey key) {
+        return index.containsKey(toIndexKey(key));
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        index.clear();
+    }
+
+    private void openSegments() throws IOException {
+        TreeMap<Integer, File> files = new TreeMap<Integer, File>();
+        File[] candidates = directory.listFiles();
+        if (candidates != null) {
+            for (File candidate : candidates) {
+                Matcher matcher = SEGMENT_NAME.matcher(candidate.getName());
+                if (matcher.matches()) {
+                    files.put(Integer.valueOf(matcher.group(1)), candidate);
+                }
+            }
+        }
+        for (Map.Entry<Integer, File> entry : files.entrySet()) {
+            Segment segment = new Segment(entry.getKey(), entry.getValue());
+            segments.put(segment.number, segment);
+            scan(segment);
+        }
+        if (segments.isEmpty()) {
+            startSegment(1);
+        }
+        LOGGER.debug("Opened result store {} with {} results in {} segments", directory, index.size(),
+                segments.size());
+    }
+
+    private void scan(Segment segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        while (segment.size - position >= HEADER_SIZE) {
+            header.clear();
+            segment.read(header, position);
+            header.flip();
+            int marker = header.getInt();
+            int keyLength = header.getInt();
+            int dataLength = header.getInt();
+            long keyPosition = position + HEADER_SIZE;
+            if (marker != RECORD_MARKER || keyLength < 0 || dataLength < 0
+                    || segment.size - keyPosition < (long) keyLength + dataLength) {
+                break;
+            }
+            ByteBuffer keyBytes = ByteBuffer.allocate(keyLength);
+            segment.read(keyBytes, keyPosition);
+            int dataOffset = (int) (keyPosition + keyLength);
+            index.put(new String(keyBytes.array(), UTF_8), new Location(segment.number, dataOffset, dataLength));
+            position = dataOffset + (long) dataLength;
+        }
+        if (position < segment.size) {
+            LOGGER.warn("Cutting off incomplete record at {} of {}", position, segment.file);
+            segment.truncate(position);
+        }
+    }
+
+    private Segment startSegment(int number) throws IOException {
+        Segment segment = new Segment(number, new File(directory, "segment-" + number + ".dat"));
+        segments.put(number, segment);
+        while (segments.size() > maxSegments) {
+            dropSegment(segments.firstEntry().getValue());
+        }
+        return segment;
+    }
+
+    private void dropSegment(Segment segment) throws IOException {
+        LOGGER.debug("Dropping results of {}", segment.file);
+        for (Iterator<Location> locations = index.values().iterator(); locations.hasNext();) {
+            if (locations.next().segmentNumber == segment.number) {
+                locations.remove();
+            }
+        }
+        segments.remove(segment.number);
+        segment.close();
+        if (!segment.file.delete()) {
+            LOGGER.warn("Couldn't delete {}", segment.file);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Result store " + directory + " is closed");
+        }
+    }
+
+    private static String toIndexKey(ResultKey key) {
+        return key.getContentDigest() + '/' + key.getConfigurationDigest() + '/' + key.getToolVersion();
+    }
+
+    private static class Location {
+
+        private final int segmentNumber;
+        private final int offset;
+        private final int length;
+
+        Location(int segmentNumber, int offset, int length) {
+            this.segmentNumber = segmentNumber;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Segment {
+
+        private final int number;
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private long size;
+
+        Segment(int number, File file) throws IOException {
+            this.number = number;
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+            this.size = channel.size();
+        }
+
+        byte[] read(int offset, int length) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate(length);
+            read(data, offset);
+            return data.array();
+        }
+
+        /**
+         * Fills the buffer with the bytes starting at the given position.
+         */
+        void read(ByteBuffer target, long position) throws IOException {
+            long current = position;
+            while (target.hasRemaining()) {
+                int count = channel.read(target, current);
+                if (count < 0) {
+                    throw new EOFException(file + " ends before " + (current + target.remaining()));
+                }
+                current += count;
+            }
+        }
+
+        int append(ByteBuffer record) throws IOException {
+            int offset = (int) size;
+            while (record.hasRemaining()) {
+                size += channel.write(record, size);
+            }
+            return offset;
+        }
+
+        void truncate(long newSize) throws IOException {
+            channel.truncate(newSize);
+            size = newSize;
+        }
+
+        void close() throws IOException {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+/**
+ * Codec for results that are {@link Serializable}. Classes are resolved by the given class loader, as the module
+ * class loaders of the IDE aren't known to {@link ObjectInputStream}'s default lookup.
+ *
+ * @param <R> type of the audit result
+ * @author alindhorst
+ */
+public final class SerializingResultCodec<R extends Serializable> implements ResultCodec<R> {
+
+    private final ClassLoader classLoader;
+
+    /**
+     * @param classLoader class loader seeing all classes the results consist of
+     */
+    public SerializingResultCodec(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public byte[] encode(R result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try {
+            out.writeObject(result);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R decode(byte[] data) throws IOException {
+        ObjectInputStream in = new ClassLoaderObjectInputStream(new ByteArrayInputStream(data), classLoader);
+        try {
+            return (R) in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Stored result refers to unknown class", ex);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        ClassLoaderObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (ClassNotFoundException ex) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
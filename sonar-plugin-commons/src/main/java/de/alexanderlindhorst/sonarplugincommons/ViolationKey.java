@@ -0,0 +1,62 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+/**
+ * Identifies a violation shown in the editor: two audits reporting the same rule with the same message on the same
+ * line report the same violation, so its annotation can stay in place.
+ *
+ * @author alindhorst
+ */
+public final class ViolationKey {
+
+    private final String rule;
+    private final int line;
+    private final String message;
+
+    /**
+     * @param rule name of the violated rule, {@code null} if unknown
+     * @param message message shown, {@code null} if there is none
+     */
+    public ViolationKey(String rule, int line, String message) {
+        this.rule = rule == null ? "" : rule;
+        this.line = line;
+        this.message = message == null ? "" : message;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 53 * hash + rule.hashCode();
+        hash = 53 * hash + line;
+        hash = 53 * hash + message.hashCode();
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final ViolationKey other = (ViolationKey) obj;
+        return line == other.line && rule.equals(other.rule) && message.equals(other.message);
+    }
+
+    @Override
+    public String toString() {
+        return "ViolationKey{" + "rule=" + rule + ", line=" + line + ", message=" + message + '}';
+    }
+}
@@ -0,0 +1,60 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class AnnotationDiffTest {
+
+    private static final ViolationKey UNUSED_IMPORT = new ViolationKey("UnusedImports", 3, "Unused import");
+    private static final ViolationKey MAGIC_NUMBER = new ViolationKey("MagicNumber", 10, "'42' is a magic number");
+    private static final ViolationKey TAB = new ViolationKey("FileTabCharacter", 12, "Line contains a tab");
+
+    @Test
+    public void unchangedViolationsKeepTheirAnnotations() {
+        Map<ViolationKey, String> attached = attached(UNUSED_IMPORT, MAGIC_NUMBER);
+
+        AnnotationDiff<String> diff = AnnotationDiff.between(attached, asList(MAGIC_NUMBER, UNUSED_IMPORT));
+
+        assertThat(diff.isEmpty(), is(true));
+        assertThat(diff.getKept(), is(attached));
+    }
+
+    @Test
+    public void onlyChangedViolationsAreDetachedAndAttached() {
+        AnnotationDiff<String> diff = AnnotationDiff.between(attached(UNUSED_IMPORT, MAGIC_NUMBER),
+                asList(MAGIC_NUMBER, TAB));
+
+        assertThat(diff.getObsolete(), is(asList(UNUSED_IMPORT.toString())));
+        assertThat(diff.getKept().keySet(), is(Collections.singleton(MAGIC_NUMBER)));
+        assertThat(diff.getAdded(), is(Collections.singleton(TAB)));
+    }
+
+    @Test
+    public void movedViolationIsNotTheSame() {
+        ViolationKey moved = new ViolationKey("MagicNumber", 11, "'42' is a magic number");
+
+        AnnotationDiff<String> diff = AnnotationDiff.between(attached(MAGIC_NUMBER), asList(moved));
+
+        assertThat(diff.getObsolete().size(), is(1));
+        assertThat(diff.getAdded(), is(Collections.singleton(moved)));
+    }
+
+    private static Map<ViolationKey, String> attached(ViolationKey... keys) {
+        Map<ViolationKey, String> attached = new LinkedHashMap<ViolationKey, String>();
+        for (ViolationKey key : keys) {
+            attached.put(key, key.toString());
+        }
+        return attached;
+    }
+}
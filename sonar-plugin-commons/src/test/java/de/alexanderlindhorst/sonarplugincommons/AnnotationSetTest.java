@@ -0,0 +1,59 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class AnnotationSetTest {
+
+    private static final ViolationKey UNUSED_IMPORT = new ViolationKey("UnusedImports", 3, "Unused import");
+    private static final ViolationKey MAGIC_NUMBER = new ViolationKey("MagicNumber", 10, "'42' is a magic number");
+
+    @Test
+    public void swapReplacesTheWholeSet() {
+        AnnotationSet<String> annotations = new AnnotationSet<String>();
+
+        boolean swapped = annotations.swap(annotations.get(), Collections.singletonMap(UNUSED_IMPORT, "import"));
+
+        assertThat(swapped, is(true));
+        assertThat(annotations.get(), is(Collections.singletonMap(UNUSED_IMPORT, "import")));
+    }
+
+    @Test
+    public void swapFailsIfSetChangedInTheMeantime() {
+        AnnotationSet<String> annotations = new AnnotationSet<String>();
+        Map<ViolationKey, String> read = annotations.get();
+        annotations.swap(read, Collections.singletonMap(UNUSED_IMPORT, "import"));
+
+        boolean swapped = annotations.swap(read, Collections.singletonMap(MAGIC_NUMBER, "magic"));
+
+        assertThat(swapped, is(false));
+        assertThat(annotations.get(), is(Collections.singletonMap(UNUSED_IMPORT, "import")));
+    }
+
+    @Test
+    public void clearReturnsTheAnnotationsToDetach() {
+        AnnotationSet<String> annotations = new AnnotationSet<String>();
+        annotations.swap(annotations.get(), Collections.singletonMap(MAGIC_NUMBER, "magic"));
+
+        assertThat(asList(annotations.clear().toArray()), is(asList((Object) "magic")));
+        assertThat(annotations.get().isEmpty(), is(true));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setCannotBeModifiedInPlace() {
+        AnnotationSet<String> annotations = new AnnotationSet<String>();
+        annotations.swap(annotations.get(), Collections.singletonMap(MAGIC_NUMBER, "magic"));
+
+        annotations.get().remove(MAGIC_NUMBER);
+    }
+}
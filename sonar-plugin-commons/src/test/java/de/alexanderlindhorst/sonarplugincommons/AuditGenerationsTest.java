@@ -0,0 +1,43 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class AuditGenerationsTest {
+
+    @Test
+    public void newerGenerationSupersedesOlderOne() {
+        AuditGenerations<String> generations = new AuditGenerations<String>();
+        long first = generations.next("A.java");
+        long second = generations.next("A.java");
+
+        assertThat(generations.isCurrent("A.java", first), is(false));
+        assertThat(generations.isCurrent("A.java", second), is(true));
+    }
+
+    @Test
+    public void generationsAreKeptPerFile() {
+        AuditGenerations<String> generations = new AuditGenerations<String>();
+        long first = generations.next("A.java");
+        generations.next("B.java");
+
+        assertThat(generations.isCurrent("A.java", first), is(true));
+    }
+
+    @Test
+    public void removingFileSupersedesAllGenerations() {
+        AuditGenerations<String> generations = new AuditGenerations<String>();
+        long first = generations.next("A.java");
+        generations.remove("A.java");
+
+        assertThat(generations.isCurrent("A.java", first), is(false));
+        generations.next("A.java");
+        assertThat(generations.isCurrent("A.java", first), is(false));
+    }
+}
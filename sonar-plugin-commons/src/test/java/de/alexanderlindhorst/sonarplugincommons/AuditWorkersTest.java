@@ -0,0 +1,34 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class AuditWorkersTest {
+
+    @Test
+    public void elementsAreSlicedEvenlyAndInOrder() {
+        List<List<Integer>> slices = AuditWorkers.slice(asList(1, 2, 3, 4, 5, 6, 7), 3);
+
+        assertThat(slices.size(), is(3));
+        assertThat(slices.get(0), is(asList(1, 2, 3)));
+        assertThat(slices.get(1), is(asList(4, 5)));
+        assertThat(slices.get(2), is(asList(6, 7)));
+    }
+
+    @Test
+    public void everyElementGetsASliceOfItsOwnIfThereAreEnoughSlices() {
+        List<List<Integer>> slices = AuditWorkers.slice(asList(1, 2), 2);
+
+        assertThat(slices.get(0), is(asList(1)));
+        assertThat(slices.get(1), is(asList(2)));
+    }
+}
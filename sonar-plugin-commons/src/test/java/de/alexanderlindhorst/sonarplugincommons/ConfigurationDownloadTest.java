@@ -0,0 +1,110 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class ConfigurationDownloadTest {
+
+    private static final String LAST_MODIFIED = "Tue, 15 Oct 2013 08:00:00 GMT";
+    private HttpServer server;
+    private URL url;
+    private volatile String content = "<profile>ä</profile>";
+    private volatile String entityTag = "\"v1\"";
+    private volatile int status;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/profile.xml", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                requests.add(ifNoneMatch + " " + ifModifiedSince);
+                if (status != 0) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else if (entityTag.equals(ifNoneMatch) || LAST_MODIFIED.equals(ifModifiedSince)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    byte[] body = content.getBytes("UTF-8");
+                    exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+                    exchange.getResponseHeaders().add("ETag", entityTag);
+                    exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream responseBody = exchange.getResponseBody();
+                    responseBody.write(body);
+                    responseBody.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/profile.xml");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void firstDownloadReturnsContentAndValidators() throws IOException {
+        ConfigurationDownload download = ConfigurationDownload.fetch(url, null, null);
+
+        assertThat(download.getContent(), is("<profile>ä</profile>"));
+        assertThat(download.getEntityTag(), is("\"v1\""));
+        assertThat(download.getLastModified(), is(LAST_MODIFIED));
+        assertThat(requests, is(Collections.singletonList("null null")));
+    }
+
+    @Test
+    public void unchangedConfigurationIsNotSentAgain() throws IOException {
+        ConfigurationDownload first = ConfigurationDownload.fetch(url, null, null);
+
+        ConfigurationDownload second = ConfigurationDownload.fetch(url, first.getEntityTag(), first.getLastModified());
+
+        assertThat(second, is(nullValue()));
+        assertThat(requests.get(1), is("\"v1\" " + LAST_MODIFIED));
+    }
+
+    @Test
+    public void changedConfigurationIsDownloaded() throws IOException {
+        ConfigurationDownload first = ConfigurationDownload.fetch(url, null, null);
+        content = "<profile>changed</profile>";
+        entityTag = "\"v2\"";
+
+        ConfigurationDownload second = ConfigurationDownload.fetch(url, first.getEntityTag(), null);
+
+        assertThat(second.getContent(), is("<profile>changed</profile>"));
+        assertThat(second.getEntityTag(), is("\"v2\""));
+    }
+
+    @Test(expected = IOException.class)
+    public void serverErrorFails() throws IOException {
+        status = 503;
+
+        ConfigurationDownload.fetch(url, null, null);
+    }
+}
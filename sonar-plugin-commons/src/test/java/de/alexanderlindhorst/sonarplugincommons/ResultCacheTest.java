@@ -0,0 +1,80 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class ResultCacheTest {
+
+    private static final byte[] CONTENT = "public class A {}".getBytes();
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameContentConfigurationAndVersionHits() {
+        ResultCache<String> cache = new ResultCache<String>();
+        cache.put(ResultKey.of(CONTENT, "<config/>", "1.0"), "result");
+
+        assertThat(cache.get(ResultKey.of(CONTENT.clone(), "<config/>", "1.0")), is("result"));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(0L));
+    }
+
+    @Test
+    public void anyChangeOfKeyPartMisses() {
+        ResultCache<String> cache = new ResultCache<String>();
+        cache.put(ResultKey.of(CONTENT, "<config/>", "1.0"), "result");
+
+        assertThat(cache.get(ResultKey.of("public class B {}".getBytes(), "<config/>", "1.0")), is(nullValue()));
+        assertThat(cache.get(ResultKey.of(CONTENT, "<other/>", "1.0")), is(nullValue()));
+        assertThat(cache.get(ResultKey.of(CONTENT, "<config/>", "1.1")), is(nullValue()));
+        assertThat(cache.get(ResultKey.of(CONTENT, null, "1.0")), is(nullValue()));
+        assertThat(cache.getMissCount(), is(4L));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        ResultCache<String> cache = new ResultCache<String>(2);
+        ResultKey first = ResultKey.of("1".getBytes(), null, null);
+        ResultKey second = ResultKey.of("2".getBytes(), null, null);
+        ResultKey third = ResultKey.of("3".getBytes(), null, null);
+        cache.put(first, "1");
+        cache.put(second, "2");
+        cache.get(first);
+        cache.put(third, "3");
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get(first), is(not(nullValue())));
+        assertThat(cache.get(second), is(nullValue()));
+    }
+
+    @Test
+    public void resultsPutInMemoryAreNotStored() throws IOException {
+        ResultStore store = new ResultStore(folder.newFolder("store"));
+        try {
+            ResultCache<String> cache = new ResultCache<String>(ResultCache.DEFAULT_MAX_ENTRIES, store,
+                    new SerializingResultCodec<String>(getClass().getClassLoader()));
+            ResultKey saved = ResultKey.of("saved".getBytes(), null, null);
+            ResultKey unsaved = ResultKey.of("unsaved".getBytes(), null, null);
+            cache.put(saved, "saved");
+            cache.putInMemory(unsaved, "unsaved");
+
+            assertThat(cache.get(unsaved), is("unsaved"));
+            assertThat(store.get(saved), is(not(nullValue())));
+            assertThat(store.get(unsaved), is(nullValue()));
+        } finally {
+            store.close();
+        }
+    }
+}
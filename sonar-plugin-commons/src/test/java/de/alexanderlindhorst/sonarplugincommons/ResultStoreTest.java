@@ -0,0 +1,114 @@
+package de.alexanderlindhorst.sonarplugincommons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class ResultStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File directory;
+    private ResultStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("store");
+        store = new ResultStore(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void storedDataIsReadBack() throws IOException {
+        store.put(key("A"), "violations of A".getBytes());
+        store.put(key("B"), "violations of B".getBytes());
+
+        assertThat(new String(store.get(key("A"))), is("violations of A"));
+        assertThat(new String(store.get(key("B"))), is("violations of B"));
+        assertThat(store.get(key("C")), is(nullValue()));
+    }
+
+    @Test
+    public void storedDataSurvivesReopening() throws IOException {
+        store.put(key("A"), "violations of A".getBytes());
+        store.close();
+
+        store = new ResultStore(directory);
+
+        assertThat(store.size(), is(1));
+        assertThat(new String(store.get(key("A"))), is("violations of A"));
+    }
+
+    @Test
+    public void incompleteRecordIsCutOffOnReopening() throws IOException {
+        store.put(key("A"), "violations of A".getBytes());
+        store.put(key("B"), "violations of B".getBytes());
+        store.close();
+        File segment = new File(directory, "segment-1.dat");
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+
+        store = new ResultStore(directory);
+
+        assertThat(store.size(), is(1));
+        assertThat(new String(store.get(key("A"))), is("violations of A"));
+        assertThat(store.get(key("B")), is(nullValue()));
+        store.put(key("B"), "violations of B".getBytes());
+        assertThat(new String(store.get(key("B"))), is("violations of B"));
+    }
+
+    @Test
+    public void oldestSegmentIsDroppedWhenTooManySegments() throws IOException {
+        store.close();
+        store = new ResultStore(directory, 100, 2);
+        byte[] data = new byte[60];
+
+        store.put(key("A"), data);
+        store.put(key("B"), data);
+        store.put(key("C"), data);
+
+        assertThat(store.getSegmentCount(), is(2));
+        assertThat(store.contains(key("A")), is(false));
+        assertThat(store.contains(key("B")), is(true));
+        assertThat(store.contains(key("C")), is(true));
+        assertThat(new File(directory, "segment-1.dat").exists(), is(false));
+    }
+
+    @Test
+    public void cacheRestoresResultsFromStore() throws IOException {
+        ResultCodec<String> codec = new SerializingResultCodec<String>(getClass().getClassLoader());
+        new ResultCache<String>(10, store, codec).put(key("A"), "result");
+
+        ResultCache<String> restartedCache = new ResultCache<String>(10, store, codec);
+
+        assertThat(restartedCache.get(key("A")), is("result"));
+        assertThat(restartedCache.size(), is(1));
+        assertThat(restartedCache.getHitCount(), is(1L));
+    }
+
+    private static ResultKey key(String content) {
+        return ResultKey.of(content.getBytes(), "<config/>", "1.0");
+    }
+}
@@ -56,6 +56,7 @@ final class SonarPMDPluginPanel extends javax.swing.JPanel {
         SourceType sourceType = SonarPMDPluginUtils.loadConfigSourceType();
         configPane.setConfigUrl(loadConfigUrl);
         configPane.setSourceType(sourceType);
+        configPane.setLiveAuditEnabled(SonarPMDPluginUtils.isLiveAuditEnabled());
     }
 
     void store() {
@@ -63,6 +64,7 @@ final class SonarPMDPluginPanel extends javax.swing.JPanel {
             URL configUrl = configPane.getConfigUrl();
             SourceType sourceType = configPane.getSourceType();
             SonarPMDPluginUtils.storeConfig(configUrl, sourceType);
+            SonarPMDPluginUtils.storeLiveAuditEnabled(configPane.isLiveAuditEnabled());
         } catch (MalformedURLException ex) {
             Exceptions.printStackTrace(ex);
         }
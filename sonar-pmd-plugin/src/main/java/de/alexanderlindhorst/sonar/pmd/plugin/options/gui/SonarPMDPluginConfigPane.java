@@ -89,6 +89,14 @@ public class SonarPMDPluginConfigPane extends javax.swing.JPanel {
         sourceTypeDropDown.setSelectedItem(SourceTypeSetting.getBySourceType(sourceType));
     }
 
+    public boolean isLiveAuditEnabled() {
+        return liveAuditCheckBox.isSelected();
+    }
+
+    public void setLiveAuditEnabled(boolean enabled) {
+        liveAuditCheckBox.setSelected(enabled);
+    }
+
     /**
      * This method is called from within the constructor to initialize the form. WARNING: Do NOT modify this code. The
      * content of this method is always regenerated by the Form Editor.
@@ -104,6 +112,7 @@ public class SonarPMDPluginConfigPane extends javax.swing.JPanel {
         javax.swing.JLabel sourceTypeLabel = new javax.swing.JLabel();
         sourceTypeDropDown = new javax.swing.JComboBox();
         javax.swing.Box.Filler horizontalGlue = new javax.swing.Box.Filler(new java.awt.Dimension(0, 0), new java.awt.Dimension(0, 0), new java.awt.Dimension(32767, 0));
+        liveAuditCheckBox = new javax.swing.JCheckBox();
 
         setBorder(javax.swing.BorderFactory.createEmptyBorder(10, 10, 10, 10));
         setLayout(new java.awt.GridBagLayout());
@@ -156,8 +165,21 @@ public class SonarPMDPluginConfigPane extends javax.swing.JPanel {
         horizontalGlue.setFocusable(false);
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridwidth = java.awt.GridBagConstraints.REMAINDER;
-        gridBagConstraints.gridheight = java.awt.GridBagConstraints.REMAINDER;
         add(horizontalGlue, gridBagConstraints);
+
+        org.openide.awt.Mnemonics.setLocalizedText(liveAuditCheckBox, org.openide.util.NbBundle.getMessage(SonarPMDPluginConfigPane.class, "SonarPMDPluginConfigPane.liveAuditCheckBox.text")); // NOI18N
+        liveAuditCheckBox.setToolTipText(org.openide.util.NbBundle.getMessage(SonarPMDPluginConfigPane.class, "SonarPMDPluginConfigPane.liveAuditCheckBox.toolTipText")); // NOI18N
+        liveAuditCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                liveAuditChanged(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridwidth = java.awt.GridBagConstraints.REMAINDER;
+        gridBagConstraints.gridheight = java.awt.GridBagConstraints.REMAINDER;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.LINE_START;
+        add(liveAuditCheckBox, gridBagConstraints);
     }// </editor-fold>//GEN-END:initComponents
 
     private void chooseButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_chooseButtonActionPerformed
@@ -179,7 +201,12 @@ public class SonarPMDPluginConfigPane extends javax.swing.JPanel {
     private void sourceTypeChanged(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_sourceTypeChanged
         fireStateChanged();
     }//GEN-LAST:event_sourceTypeChanged
+
+    private void liveAuditChanged(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_liveAuditChanged
+        fireStateChanged();
+    }//GEN-LAST:event_liveAuditChanged
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JCheckBox liveAuditCheckBox;
     private javax.swing.JComboBox sourceTypeDropDown;
     private javax.swing.JTextField urlField;
     // End of variables declaration//GEN-END:variables
@@ -1,143 +1,231 @@
 package de.alexanderlindhorst.sonar.pmd.plugin.util;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.netbeans.api.java.source.JavaSource;
 import org.openide.cookies.LineCookie;
 import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
 import org.openide.loaders.DataObjectNotFoundException;
+import org.openide.modules.Places;
 import org.openide.text.Line;
 import org.openide.util.Exceptions;
 import org.openide.util.Utilities;
-import org.openide.windows.TopComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Maps;
 
 import de.alexanderlindhorst.sonar.pmd.plugin.annotation.SonarPmdAnnotation;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+import de.alexanderlindhorst.sonaranalysiscore.util.AnnotationBatch;
+import de.alexanderlindhorst.sonarpmdprocessor.PMDEngine;
 import de.alexanderlindhorst.sonarpmdprocessor.PerFilePMDAuditRunner;
+import de.alexanderlindhorst.sonarplugincommons.AnnotationSet;
+import de.alexanderlindhorst.sonarplugincommons.AuditGenerations;
+import de.alexanderlindhorst.sonarplugincommons.ResultCache;
+import de.alexanderlindhorst.sonarplugincommons.ResultKey;
+import de.alexanderlindhorst.sonarplugincommons.ResultStore;
+import de.alexanderlindhorst.sonarplugincommons.ViolationKey;
 
 import net.sourceforge.pmd.IRuleViolation;
-import net.sourceforge.pmd.RuleSet;
-import net.sourceforge.pmd.RuleSetFactory;
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDException;
 import net.sourceforge.pmd.SourceType;
 
-import static de.alexanderlindhorst.sonar.pmd.plugin.util.SonarPMDPluginUtils.getUnderlyingFile;
-import static de.alexanderlindhorst.sonar.pmd.plugin.util.SonarPMDPluginUtils.getUnderlyingJavaFile;
-
 /**
  * @author lindhrst (original author)
  */
 public final class OpenJavaSourceRegistry {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenJavaSourceRegistry.class);
-    private static final Map<JavaSource, List<SonarPmdAnnotation>> ANNOTATION_REGISTRY = Maps.newHashMap();
-    private static final Map<TopComponent, JavaSource> TOP_COMPONENT_REGISTRY = Maps.newHashMap();
+    private static final ConcurrentMap<JavaSource, AnnotationSet<SonarPmdAnnotation>> ANNOTATION_REGISTRY
+            = new ConcurrentHashMap<JavaSource, AnnotationSet<SonarPmdAnnotation>>();
+    private static final ResultCache<List<IRuleViolation>> RESULT_CACHE = createResultCache();
+    private static final AuditGenerations<FileObject> GENERATIONS = new AuditGenerations<FileObject>();
 
     private OpenJavaSourceRegistry() {
         //utility class
     }
 
-    public static boolean isKnownTopComponent(TopComponent component) {
-        return TOP_COMPONENT_REGISTRY.containsKey(component);
-    }
-
-    public static boolean isKnownJavaSource(JavaSource source) {
-        return TOP_COMPONENT_REGISTRY.values().contains(source) && ANNOTATION_REGISTRY.containsKey(source);
+    public static void markFileOpened(FileObject fileObject) {
+        JavaSource source = JavaSource.forFileObject(fileObject);
+        if (source == null) {
+            LOGGER.debug("{} is no Java source, won't register", fileObject);
+            return;
+        }
+        ANNOTATION_REGISTRY.putIfAbsent(source, new AnnotationSet<SonarPmdAnnotation>());
     }
 
-    public static void markTopComponentOpened(TopComponent topComponent) {
-        JavaSource source = getUnderlyingJavaFile(topComponent);
-        List<SonarPmdAnnotation> annotations = ANNOTATION_REGISTRY.get(source);
-        if (annotations == null) {
-            annotations = new ArrayList<SonarPmdAnnotation>();
-            ANNOTATION_REGISTRY.put(source, annotations);
+    public static void markFileClosed(FileObject fileObject) {
+        GENERATIONS.remove(fileObject);
+        JavaSource source = JavaSource.forFileObject(fileObject);
+        if (source == null) {
+            return;
         }
-        if (!TOP_COMPONENT_REGISTRY.keySet().contains(topComponent)) {
-            TOP_COMPONENT_REGISTRY.put(topComponent, source);
+        AnnotationSet<SonarPmdAnnotation> annotations = ANNOTATION_REGISTRY.remove(source);
+        if (annotations != null) {
+            detach(annotations.clear());
         }
-        FileObject underlyingFile = getUnderlyingFile(topComponent);
-        clearOldAnnotationsFor(source);
-        applyAnnotationsFor(underlyingFile);
-    }
-
-    public static void markTopComponentClosed(TopComponent topComponent) {
-        JavaSource source = TOP_COMPONENT_REGISTRY.get(topComponent);
-        clearOldAnnotationsFor(source);
-        ANNOTATION_REGISTRY.remove(source);
-        TOP_COMPONENT_REGISTRY.remove(topComponent);
     }
 
-    public static void applyAnnotationsFor(FileObject fileObject) {
-        JavaSource source = JavaSource.forFileObject(fileObject);
-        List<SonarPmdAnnotation> annotations = ANNOTATION_REGISTRY.get(source);
-
-        PerFilePMDAuditRunner auditRunner = processFile(fileObject);
-        if (auditRunner == null) {
+    /**
+     * Audits the file and updates its annotations, unless the file was changed, audited again or closed in the
+     * meantime. Annotations of violations found again stay attached, only those of violations gone are detached and
+     * only those of new violations attached, all in one batch on the event dispatch thread.
+     */
+    public static void applyAnnotationsFor(SourceSnapshot snapshot) {
+        final FileObject fileObject = snapshot.getFileObject();
+        final long generation = GENERATIONS.next(fileObject);
+        List<IRuleViolation> violations = processFile(snapshot);
+        if (violations == null) {
+            return;
+        }
+        if (isSuperseded(fileObject, generation)) {
+            LOGGER.debug("Audit of {} was superseded, dropping its result", fileObject);
+            return;
+        }
+        final JavaSource source = JavaSource.forFileObject(fileObject);
+        final AnnotationSet<SonarPmdAnnotation> annotations = source == null ? null : ANNOTATION_REGISTRY.get(source);
+        if (annotations == null) {
+            LOGGER.debug("{} is not known (anymore), won't annotate", fileObject);
             return;
         }
-        Line.Set lineSet = getLineCookieFromFileObject(fileObject).getLineSet();
-        for (IRuleViolation violation : auditRunner.getViolations()) {
-            int targetIndex = violation.getBeginLine() - 1;
-            if (targetIndex < 0) {
-                targetIndex = 0;
+        final Map<ViolationKey, IRuleViolation> violationsByKey = Maps.newLinkedHashMap();
+        for (IRuleViolation violation : violations) {
+            ViolationKey key = new ViolationKey(RuleViolationCodec.getRuleName(violation), violation.getBeginLine(),
+                    violation.getDescription());
+            if (!violationsByKey.containsKey(key)) {
+                violationsByKey.put(key, violation);
             }
-            Line current = lineSet.getCurrent(targetIndex);
-            SonarPmdAnnotation annotation = new SonarPmdAnnotation(violation.getDescription());
-            annotation.attach(current);
-            annotations.add(annotation);
         }
+        Line.Set lineSet = violationsByKey.isEmpty() ? null : getLineCookieFromFileObject(fileObject).getLineSet();
+        new AnnotationBatch<SonarPmdAnnotation>(fileObject, annotations, violationsByKey.keySet(), lineSet) {
+            @Override
+            protected boolean isApplicable() {
+                return GENERATIONS.isCurrent(fileObject, generation)
+                        && ANNOTATION_REGISTRY.get(source) == annotations;
+            }
+
+            @Override
+            protected SonarPmdAnnotation createAnnotation(ViolationKey key) {
+                return new SonarPmdAnnotation(violationsByKey.get(key).getDescription());
+            }
+        }.applyOnEventThread();
+    }
+
+    /**
+     * Supersedes any audit of the file that's currently running, e.g. because the file has just been changed.
+     */
+    public static void invalidateResultsFor(FileObject fileObject) {
+        GENERATIONS.next(fileObject);
     }
 
     public static void clearOldAnnotationsFor(FileObject fileObject) {
         LOGGER.debug("Attempting to clean annotations for {}", fileObject);
         JavaSource source = JavaSource.forFileObject(fileObject);
-        clearOldAnnotationsFor(source);
-    }
-
-    private static void clearOldAnnotationsFor(JavaSource source) {
-        List<SonarPmdAnnotation> registeredAnnotations = ANNOTATION_REGISTRY.get(source);
+        AnnotationSet<SonarPmdAnnotation> registeredAnnotations = source == null ? null : ANNOTATION_REGISTRY.get(
+                source);
         if (registeredAnnotations == null) {
             LOGGER.debug("Nothing to clear");
             return;
         }
-        for (SonarPmdAnnotation annotation : registeredAnnotations) {
+        detach(registeredAnnotations.clear());
+    }
+
+    private static void detach(Collection<SonarPmdAnnotation> annotations) {
+        for (SonarPmdAnnotation annotation : annotations) {
             annotation.detach();
         }
-        registeredAnnotations.clear();
     }
 
-    private static PerFilePMDAuditRunner processFile(FileObject fileObject) {
-        PerFilePMDAuditRunner auditRunner = null;
+    private static boolean isSuperseded(FileObject fileObject, long generation) {
+        return Thread.currentThread().isInterrupted() || !GENERATIONS.isCurrent(fileObject, generation);
+    }
+
+    /**
+     * @return the file's violations, {@code null} if it couldn't be audited or the audit was superseded, so the current
+     * annotations are kept
+     */
+    private static List<IRuleViolation> processFile(SourceSnapshot snapshot) {
+        FileObject fileObject = snapshot.getFileObject();
         try {
             URL configUrl = SonarPMDPluginUtils.loadConfigUrl();
             String configContent = SonarPMDPluginUtils.loadConfigurationContent();
             SourceType sourceType = SonarPMDPluginUtils.loadConfigSourceType();
             LOGGER.debug("retrieved configuration: {}", configContent);
-            RuleSet ruleSet;
+            //the source type changes the outcome as much as the rules do
+            ResultKey key = ResultKey.of(snapshot.getBytes(),
+                    sourceType.getId() + '\n' + (configContent == null ? "" : configContent), PMD.VERSION);
+            List<IRuleViolation> cached = RESULT_CACHE.get(key);
+            if (cached != null) {
+                LOGGER.debug("{} unchanged since last audit, using cached result", fileObject);
+                return cached;
+            }
             if (configContent == null) {
                 LOGGER.debug("No config given, reverting to basic ruleset");
-                ruleSet = null;
             } else {
                 //real config
                 LOGGER.debug("processing file using configuration {}", configUrl);
-                ruleSet = new RuleSetFactory().createRuleSet(new ByteArrayInputStream(configContent.getBytes()));
             }
-            auditRunner = new PerFilePMDAuditRunner(ruleSet, sourceType, Utilities.toFile(fileObject.toURI()));
+            PMDEngine engine = PMDEngine.forRuleSet(configContent);
+            if (Thread.currentThread().isInterrupted()) {
+                LOGGER.debug("Audit of {} was superseded before it started", fileObject);
+                return null;
+            }
+            PerFilePMDAuditRunner auditRunner = new PerFilePMDAuditRunner(engine, sourceType,
+                    Utilities.toFile(fileObject.toURI()), snapshot.getText());
             auditRunner.run();
             if (auditRunner.hasAuditProblem()) {
-                Exceptions.printStackTrace(auditRunner.getAuditProblem());
+                reportAuditProblem(snapshot, auditRunner.getAuditProblem());
+                return null;
             }
+            if (snapshot.isLive()) {
+                //unsaved text won't be seen again, it mustn't push saved files' results out of the store
+                RESULT_CACHE.putInMemory(key, auditRunner.getViolations());
+            } else {
+                RESULT_CACHE.put(key, auditRunner.getViolations());
+            }
+            return auditRunner.getViolations();
         } catch (Exception e) {
             Exceptions.printStackTrace(e);
+            return null;
+        }
+    }
+
+    /**
+     * Code that doesn't parse is nothing to bother the user with: while typing it's the rule rather than the
+     * exception, and a saved file's syntax errors are shown by the editor anyway.
+     */
+    private static void reportAuditProblem(SourceSnapshot snapshot, Exception problem) {
+        if (problem instanceof PMDException) {
+            LOGGER.debug("Couldn't audit {}{}", snapshot.getFileObject(), snapshot.isLive() ? " while edited" : "",
+                    problem);
+        } else {
+            Exceptions.printStackTrace(problem);
+        }
+    }
+
+    /**
+     * @return a cache backed by a store in the IDE's cache directory, so restored editors are annotated from the last
+     * session's results; a cache in memory only if the store can't be opened
+     */
+    private static ResultCache<List<IRuleViolation>> createResultCache() {
+        File storeDirectory = Places.getCacheSubdirectory("sonar-violations/pmd");
+        try {
+            return new ResultCache<List<IRuleViolation>>(ResultCache.DEFAULT_MAX_ENTRIES,
+                    new ResultStore(storeDirectory), new RuleViolationCodec());
+        } catch (IOException ex) {
+            LOGGER.warn("Couldn't open result store in {}, results won't be kept across sessions", storeDirectory, ex);
+            return new ResultCache<List<IRuleViolation>>();
         }
-        return auditRunner;
     }
 
     private static LineCookie getLineCookieFromFileObject(FileObject fileObject) {
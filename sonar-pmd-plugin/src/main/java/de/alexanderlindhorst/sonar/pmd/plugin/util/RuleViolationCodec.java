@@ -0,0 +1,185 @@
+package de.alexanderlindhorst.sonar.pmd.plugin.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.alexanderlindhorst.sonarplugincommons.ResultCodec;
+
+import net.sourceforge.pmd.IRuleViolation;
+import net.sourceforge.pmd.Rule;
+
+/**
+ * Stores PMD violations without their rule, which can't be serialized. Restored violations carry everything but the
+ * rule, so {@link IRuleViolation#getRule()} is {@code null} for them; {@link #getRuleName(IRuleViolation)} still knows
+ * the rule's name.
+ *
+ * @author alindhorst
+ */
+final class RuleViolationCodec implements ResultCodec<List<IRuleViolation>> {
+
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * @return name of the violated rule, also for restored violations
+     */
+    static String getRuleName(IRuleViolation violation) {
+        if (violation.getRule() != null) {
+            return violation.getRule().getName();
+        }
+        if (violation instanceof RestoredRuleViolation) {
+            return ((RestoredRuleViolation) violation).ruleName;
+        }
+        return null;
+    }
+
+    @Override
+    public byte[] encode(List<IRuleViolation> violations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(violations.size());
+            for (IRuleViolation violation : violations) {
+                writeString(out, getRuleName(violation));
+                writeString(out, violation.getFilename());
+                out.writeInt(violation.getBeginLine());
+                out.writeInt(violation.getBeginColumn());
+                out.writeInt(violation.getEndLine());
+                out.writeInt(violation.getEndColumn());
+                writeString(out, violation.getDescription());
+                writeString(out, violation.getPackageName());
+                writeString(out, violation.getClassName());
+                writeString(out, violation.getMethodName());
+                writeString(out, violation.getVariableName());
+                out.writeBoolean(violation.isSuppressed());
+            }
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public List<IRuleViolation> decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported format version " + version);
+            }
+            int count = in.readInt();
+            List<IRuleViolation> violations = new ArrayList<IRuleViolation>(count);
+            for (int i = 0; i < count; i++) {
+                RestoredRuleViolation violation = new RestoredRuleViolation();
+                violation.ruleName = readString(in);
+                violation.filename = readString(in);
+                violation.beginLine = in.readInt();
+                violation.beginColumn = in.readInt();
+                violation.endLine = in.readInt();
+                violation.endColumn = in.readInt();
+                violation.description = readString(in);
+                violation.packageName = readString(in);
+                violation.className = readString(in);
+                violation.methodName = readString(in);
+                violation.variableName = readString(in);
+                violation.suppressed = in.readBoolean();
+                violations.add(violation);
+            }
+            return violations;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static class RestoredRuleViolation implements IRuleViolation {
+
+        private String ruleName;
+        private String filename;
+        private int beginLine;
+        private int beginColumn;
+        private int endLine;
+        private int endColumn;
+        private String description;
+        private String packageName;
+        private String className;
+        private String methodName;
+        private String variableName;
+        private boolean suppressed;
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public int getBeginLine() {
+            return beginLine;
+        }
+
+        @Override
+        public int getBeginColumn() {
+            return beginColumn;
+        }
+
+        @Override
+        public int getEndLine() {
+            return endLine;
+        }
+
+        @Override
+        public int getEndColumn() {
+            return endColumn;
+        }
+
+        @Override
+        public Rule getRule() {
+            return null;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String getPackageName() {
+            return packageName;
+        }
+
+        @Override
+        public String getMethodName() {
+            return methodName;
+        }
+
+        @Override
+        public String getClassName() {
+            return className;
+        }
+
+        @Override
+        public boolean isSuppressed() {
+            return suppressed;
+        }
+
+        @Override
+        public String getVariableName() {
+            return variableName;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.alexanderlindhorst.sonar.pmd.plugin.util;
+
+import org.openide.filesystems.FileObject;
+import org.openide.util.lookup.ServiceProvider;
+
+import de.alexanderlindhorst.sonaranalysiscore.Analyzer;
+import de.alexanderlindhorst.sonaranalysiscore.SourceSnapshot;
+
+/**
+ * Plugs PMD into the analysis core.
+ *
+ * @author alindhorst
+ */
+@ServiceProvider(service = Analyzer.class)
+public class SonarPMDAnalyzer implements Analyzer {
+
+    @Override
+    public void fileOpened(FileObject fileObject) {
+        OpenJavaSourceRegistry.markFileOpened(fileObject);
+    }
+
+    @Override
+    public void analyze(SourceSnapshot snapshot) {
+        OpenJavaSourceRegistry.applyAnnotationsFor(snapshot);
+    }
+
+    @Override
+    public void fileClosed(FileObject fileObject) {
+        OpenJavaSourceRegistry.markFileClosed(fileObject);
+    }
+
+    @Override
+    public void invalidateResultsFor(FileObject fileObject) {
+        OpenJavaSourceRegistry.invalidateResultsFor(fileObject);
+    }
+
+    @Override
+    public boolean isLiveAuditEnabled() {
+        return SonarPMDPluginUtils.isLiveAuditEnabled();
+    }
+
+    @Override
+    public String getConfiguration() {
+        //the source type changes the outcome as much as the rules do
+        String configContent = SonarPMDPluginUtils.loadConfigurationContent();
+        return SonarPMDPluginUtils.loadConfigSourceType().getId() + '\n' + (configContent == null ? "" : configContent);
+    }
+
+    @Override
+    public String toString() {
+        return "PMD";
+    }
+}
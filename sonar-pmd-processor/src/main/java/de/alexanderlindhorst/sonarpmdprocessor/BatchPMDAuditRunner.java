@@ -0,0 +1,166 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.IRuleViolation;
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceType;
+
+/**
+ * Audits any number of files one after another on rule sets borrowed once from the engine, reporting through a rule
+ * context of its own. As neither the rule instances nor the context are shared with other runners, batches may run in
+ * parallel.
+ *
+ * @author alindhorst
+ */
+public class BatchPMDAuditRunner implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchPMDAuditRunner.class);
+    private final PMDEngine engine;
+    private final SourceType sourceType;
+    private final Charset charset;
+    private final ViolationSink sink;
+    private final List<File> targetFiles;
+    private final Map<File, List<IRuleViolation>> results = new LinkedHashMap<File, List<IRuleViolation>>();
+    private final List<Throwable> auditExceptions = new ArrayList<Throwable>();
+
+    /**
+     * @param charset the files' encoding
+     */
+    public BatchPMDAuditRunner(PMDEngine engine, SourceType sourceType, Charset charset, List<File> targetFiles) {
+        this(engine, sourceType, charset, targetFiles, null);
+    }
+
+    /**
+     * @param charset the files' encoding
+     * @param sink sink to pass violations to as they're found; if {@code null}, violations are collected per file
+     */
+    public BatchPMDAuditRunner(PMDEngine engine, SourceType sourceType, Charset charset, List<File> targetFiles,
+            ViolationSink sink) {
+        this.engine = engine;
+        this.sourceType = sourceType;
+        this.charset = charset;
+        this.sink = sink;
+        this.targetFiles = Collections.unmodifiableList(new ArrayList<File>(targetFiles));
+    }
+
+    @Override
+    public void run() {
+        if (targetFiles.isEmpty()) {
+            return;
+        }
+        RuleSets ruleSets = borrowRuleSets();
+        if (ruleSets == null) {
+            return;
+        }
+        LOGGER.debug("Auditing {} files in one batch", targetFiles.size());
+        RuleContext ruleContext = new RuleContext();
+        ruleContext.setSourceType(sourceType);
+        SourceLoader sourceLoader = new SourceLoader(charset);
+        try {
+            for (int i = 0; i < targetFiles.size(); i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    LOGGER.debug("Batch audit interrupted, skipping remaining files");
+                    auditExceptions.add(new InterruptedException("Batch audit interrupted, " + (targetFiles.size()
+                            - i) + " of " + targetFiles.size() + " files not audited"));
+                    return;
+                }
+                if (!audit(targetFiles.get(i), sourceLoader, ruleSets, ruleContext)) {
+                    //a rule failed half way through the file, its state can't be trusted for the next one
+                    ruleSets = borrowRuleSets();
+                    if (ruleSets == null) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            if (ruleSets != null) {
+                engine.release(ruleSets);
+            }
+        }
+    }
+
+    /**
+     * @return the violations of every file audited successfully, in the order the files were handed in; empty if
+     * violations were passed to a sink
+     */
+    public Map<File, List<IRuleViolation>> getResultsByFile() {
+        return results;
+    }
+
+    /**
+     * @return the file's violations, an empty list if it couldn't be audited
+     */
+    public List<IRuleViolation> getViolationsFor(File targetFile) {
+        List<IRuleViolation> violations = results.get(targetFile);
+        if (violations == null) {
+            return Collections.emptyList();
+        }
+        return violations;
+    }
+
+    public List<Throwable> getAuditExceptions() {
+        return auditExceptions;
+    }
+
+    public boolean hasAuditProblems() {
+        return !auditExceptions.isEmpty();
+    }
+
+    private RuleSets borrowRuleSets() {
+        try {
+            return engine.borrow();
+        } catch (PMDException ex) {
+            LOGGER.error("Couldn't set up rule sets for batch audit", ex);
+            auditExceptions.add(ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the rule sets may be used for further files, i.e. no rule failed
+     */
+    private boolean audit(File targetFile, SourceLoader sourceLoader, RuleSets ruleSets, RuleContext ruleContext) {
+        //a report per file, so violations needn't be told apart by file afterwards
+        PMDResultProvider resultProvider = new PMDResultProvider(sink);
+        Report report = new Report();
+        report.addListener(resultProvider);
+        ruleContext.setReport(report);
+        ruleContext.setSourceCodeFile(targetFile);
+        ruleContext.setSourceCodeFilename(targetFile.getAbsolutePath());
+        try {
+            engine.process(sourceLoader.load(targetFile), ruleSets, ruleContext, sourceType);
+            if (sink == null) {
+                results.put(targetFile, resultProvider.getViolations());
+            } else {
+                sink.fileAudited(targetFile);
+            }
+        } catch (IOException ex) {
+            LOGGER.debug("Couldn't read {}", targetFile, ex);
+            auditExceptions.add(ex);
+        } catch (PMDException ex) {
+            //PMD reports a failing rule like this, too
+            LOGGER.debug("Couldn't audit {}", targetFile, ex);
+            auditExceptions.add(ex);
+            return false;
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Rule failed auditing {}", targetFile, ex);
+            auditExceptions.add(ex);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,260 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.alexanderlindhorst.sonarplugincommons.Digests;
+
+import net.sourceforge.pmd.IRuleViolation;
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSetFactory;
+import net.sourceforge.pmd.RuleSetNotFoundException;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceType;
+
+/**
+ * PMD set up once for a rule set and reused for any number of audits, so auditing a file only costs parsing it and
+ * evaluating the rules. PMD's rules keep state while visiting a file, hence each audit runs on rule sets of its own:
+ * they're parsed once per concurrent audit, pooled and handed to the next audit afterwards. The loaders reading files
+ * from disk are pooled likewise, so their buffers are reused. Safe to be used by several threads at once.
+ *
+ * @author alindhorst
+ */
+public final class PMDEngine {
+
+    public static final String FALLBACK_RULE_SET = "rulesets/basic.xml";
+    private static final Logger LOGGER = LoggerFactory.getLogger(PMDEngine.class);
+    private static final int MAX_ENGINES = 4;
+    private static final int DEFAULT_MAX_IDLE = 5;
+    private static final Map<String, PMDEngine> ENGINES = new LinkedHashMap<String, PMDEngine>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PMDEngine> eldest) {
+            return size() > MAX_ENGINES;
+        }
+    };
+    private final PMD pmd = new PMD();
+    private final String ruleSetContent;
+    private final int maxIdle;
+    private final Deque<RuleSets> idleRuleSets = new ArrayDeque<RuleSets>();
+    private final AtomicInteger ruleSetsCreated = new AtomicInteger();
+    private final Deque<SourceLoader> idleSourceLoaders = new ArrayDeque<SourceLoader>();
+    private final AtomicInteger sourceLoadersCreated = new AtomicInteger();
+
+    /**
+     * @param ruleSetContent XML of the rule set, {@code null} for PMD's basic rules
+     * @throws RuleSetNotFoundException if the basic rules can't be found
+     */
+    PMDEngine(String ruleSetContent, int maxIdle) throws RuleSetNotFoundException {
+        this.ruleSetContent = ruleSetContent;
+        this.maxIdle = maxIdle;
+        //fail right away rather than on the first audit
+        release(createRuleSets());
+    }
+
+    /**
+     * @param ruleSetContent XML of the rule set, {@code null} for PMD's basic rules
+     * @return an engine for the rule set; engines of the most recently used rule sets are kept
+     * @throws RuleSetNotFoundException if the basic rules can't be found
+     */
+    public static PMDEngine forRuleSet(String ruleSetContent) throws RuleSetNotFoundException {
+        String key = ruleSetContent == null ? "" : Digests.digest(ruleSetContent);
+        synchronized (ENGINES) {
+            PMDEngine engine = ENGINES.get(key);
+            if (engine != null) {
+                return engine;
+            }
+        }
+        LOGGER.debug("Setting up engine for rule set with content hash {}", key);
+        PMDEngine engine = new PMDEngine(ruleSetContent, DEFAULT_MAX_IDLE);
+        synchronized (ENGINES) {
+            PMDEngine concurrentlyCreated = ENGINES.get(key);
+            if (concurrentlyCreated != null) {
+                return concurrentlyCreated;
+            }
+            ENGINES.put(key, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * Audits the given text instead of the file's content on disk, e.g. the unsaved content of an editor. Violations
+     * are reported for the given file.
+     */
+    public List<IRuleViolation> audit(File file, CharSequence text, SourceType sourceType) throws PMDException,
+            IOException {
+        return audit(file, text, sourceType, null);
+    }
+
+    /**
+     * Like {@link #audit(File, CharSequence, SourceType)}, but passes violations to the sink as they're found.
+     *
+     * @param sink sink to pass violations to; if {@code null}, violations are collected and returned
+     * @return the violations, an empty list if they were passed to the sink
+     */
+    public List<IRuleViolation> audit(File file, CharSequence text, SourceType sourceType, ViolationSink sink) throws
+            PMDException, IOException {
+        if (text == null) {
+            throw new IllegalArgumentException("No text to audit for " + file + ", audit its content with a charset");
+        }
+        return audit(file, text, null, sourceType, sink, null);
+    }
+
+    /**
+     * Audits the file's content on disk decoded in the given charset.
+     */
+    public List<IRuleViolation> audit(File file, Charset charset, SourceType sourceType) throws PMDException,
+            IOException {
+        return audit(file, charset, sourceType, null);
+    }
+
+    /**
+     * Like {@link #audit(File, Charset, SourceType)}, but passes violations to the sink as they're found.
+     *
+     * @param sink sink to pass violations to; if {@code null}, violations are collected and returned
+     * @return the violations, an empty list if they were passed to the sink
+     */
+    public List<IRuleViolation> audit(File file, Charset charset, SourceType sourceType, ViolationSink sink) throws
+            PMDException, IOException {
+        return audit(file, null, charset, sourceType, sink, null);
+    }
+
+    /**
+     * Audits the given text, or the file's content on disk decoded in the given charset if there's no text.
+     *
+     * @param charset the file's encoding, only used if there's no text
+     * @param sink sink to pass violations to; if {@code null}, violations are collected and returned
+     * @param profiler profiler to time the rules with, {@code null} if they aren't to be timed
+     */
+    List<IRuleViolation> audit(File file, CharSequence text, Charset charset, SourceType sourceType,
+            ViolationSink sink, RuleProfiler profiler) throws PMDException, IOException {
+        SourceLoader sourceLoader = text == null ? borrowSourceLoader(charset) : null;
+        RuleContext ruleContext = new RuleContext();
+        PMDResultProvider resultProvider = new PMDResultProvider(sink);
+        ruleContext.setSourceCodeFile(file);
+        ruleContext.setSourceCodeFilename(file.getAbsolutePath());
+        ruleContext.setSourceType(sourceType);
+        ruleContext.getReport().addListener(resultProvider);
+        try {
+            Reader reader = sourceLoader == null ? new StringReader(text.toString()) : sourceLoader.load(file);
+            RuleSets ruleSets = borrow();
+            //a rule failing half way through the file leaves its state behind, so only release on success
+            process(reader, profiler == null ? ruleSets : profiler.wrap(ruleSets), ruleContext, sourceType);
+            release(ruleSets);
+        } finally {
+            if (sourceLoader != null) {
+                releaseSourceLoader(sourceLoader);
+            }
+        }
+        if (sink != null) {
+            sink.fileAudited(file);
+        }
+        return resultProvider.getViolations();
+    }
+
+    /**
+     * Audits the source read by the reader, which is closed afterwards, on rule sets borrowed from this engine.
+     */
+    void process(Reader reader, RuleSets ruleSets, RuleContext ruleContext, SourceType sourceType) throws
+            PMDException {
+        pmd.processFile(reader, ruleSets, ruleContext, sourceType);
+    }
+
+    int getIdleCount() {
+        synchronized (idleRuleSets) {
+            return idleRuleSets.size();
+        }
+    }
+
+    int getRuleSetsCreated() {
+        return ruleSetsCreated.get();
+    }
+
+    int getSourceLoadersCreated() {
+        return sourceLoadersCreated.get();
+    }
+
+    /**
+     * Hands out idle rule sets or creates new ones if none are available. The caller owns them until they're passed
+     * back via {@link #release(RuleSets)}.
+     */
+    RuleSets borrow() throws PMDException {
+        synchronized (idleRuleSets) {
+            RuleSets ruleSets = idleRuleSets.pollFirst();
+            if (ruleSets != null) {
+                return ruleSets;
+            }
+        }
+        LOGGER.debug("No idle rule sets available, creating new ones");
+        try {
+            return createRuleSets();
+        } catch (RuleSetNotFoundException ex) {
+            throw new PMDException("Couldn't create rule sets", ex);
+        }
+    }
+
+    void release(RuleSets ruleSets) {
+        synchronized (idleRuleSets) {
+            if (idleRuleSets.size() < maxIdle) {
+                idleRuleSets.offerFirst(ruleSets);
+            }
+        }
+    }
+
+    private SourceLoader borrowSourceLoader(Charset charset) {
+        synchronized (idleSourceLoaders) {
+            for (Iterator<SourceLoader> loaders = idleSourceLoaders.iterator(); loaders.hasNext();) {
+                SourceLoader sourceLoader = loaders.next();
+                if (sourceLoader.getCharset().equals(charset)) {
+                    loaders.remove();
+                    return sourceLoader;
+                }
+            }
+        }
+        sourceLoadersCreated.incrementAndGet();
+        return new SourceLoader(charset);
+    }
+
+    /**
+     * Keeps the loader for the next audit; if too many are idle, the least recently used one is dropped.
+     */
+    private void releaseSourceLoader(SourceLoader sourceLoader) {
+        synchronized (idleSourceLoaders) {
+            idleSourceLoaders.offerFirst(sourceLoader);
+            if (idleSourceLoaders.size() > maxIdle) {
+                idleSourceLoaders.pollLast();
+            }
+        }
+    }
+
+    private RuleSets createRuleSets() throws RuleSetNotFoundException {
+        ruleSetsCreated.incrementAndGet();
+        RuleSetFactory factory = new RuleSetFactory();
+        if (ruleSetContent == null) {
+            return new RuleSets(factory.createSingleRuleSet(FALLBACK_RULE_SET));
+        }
+        try {
+            return new RuleSets(factory.createRuleSet(new ByteArrayInputStream(ruleSetContent.getBytes("UTF-8"))));
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 not supported by this runtime", ex);
+        }
+    }
+}
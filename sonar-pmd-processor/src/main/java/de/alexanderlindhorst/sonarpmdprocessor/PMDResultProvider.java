@@ -1,6 +1,7 @@
 package de.alexanderlindhorst.sonarpmdprocessor;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -15,12 +16,25 @@ import net.sourceforge.pmd.stat.Metric;
 class PMDResultProvider implements ReportListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PMDResultProvider.class);
-    private List<IRuleViolation> violations = new ArrayList<IRuleViolation>();
+    private final ViolationSink sink;
+    private final List<IRuleViolation> violations;
+
+    /**
+     * @param sink sink to pass violations to as they're found; if {@code null}, violations are collected instead
+     */
+    PMDResultProvider(ViolationSink sink) {
+        this.sink = sink;
+        this.violations = sink == null ? new ArrayList<IRuleViolation>() : Collections.<IRuleViolation>emptyList();
+    }
 
     @Override
     public void ruleViolationAdded(IRuleViolation ruleViolation) {
         LOGGER.debug("Violation added: {}", ruleViolation);
-        violations.add(ruleViolation);
+        if (sink == null) {
+            violations.add(ruleViolation);
+        } else {
+            sink.violationFound(ruleViolation);
+        }
     }
 
     @Override
@@ -28,6 +42,9 @@ class PMDResultProvider implements ReportListener {
         LOGGER.debug("Metric added: {}", metric);
     }
 
+    /**
+     * @return the violations collected, an empty list if they were passed to a sink
+     */
     List<IRuleViolation> getViolations() {
         return violations;
     }
@@ -0,0 +1,164 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.IRuleViolation;
+import net.sourceforge.pmd.SourceType;
+
+import static de.alexanderlindhorst.sonarplugincommons.AuditWorkers.newWorkerPool;
+import static de.alexanderlindhorst.sonarplugincommons.AuditWorkers.slice;
+
+/**
+ * Audits a large set of files on a bounded pool of worker threads. The files are split into contiguous slices, one
+ * per worker, and every worker audits its slice as a {@link BatchPMDAuditRunner} with rule sets and a rule context of
+ * its own. The per-file results are merged afterwards.
+ *
+ * @author alindhorst
+ */
+public class ParallelPMDAuditRunner implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelPMDAuditRunner.class);
+    private final PMDEngine engine;
+    private final SourceType sourceType;
+    private final Charset charset;
+    private final ViolationSink sink;
+    private final List<File> targetFiles;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final Map<File, List<IRuleViolation>> results = new LinkedHashMap<File, List<IRuleViolation>>();
+    private final List<Throwable> auditExceptions = new ArrayList<Throwable>();
+
+    /**
+     * @param charset the files' encoding
+     */
+    public ParallelPMDAuditRunner(PMDEngine engine, SourceType sourceType, Charset charset, List<File> targetFiles) {
+        this(engine, sourceType, charset, targetFiles, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param charset the files' encoding
+     */
+    public ParallelPMDAuditRunner(PMDEngine engine, SourceType sourceType, Charset charset, List<File> targetFiles,
+            int parallelism) {
+        this(engine, sourceType, charset, targetFiles, parallelism, null);
+    }
+
+    /**
+     * @param charset the files' encoding
+     * @param executor executor to run the slices on; if {@code null}, a fixed thread pool of {@code parallelism}
+     * threads is created for the audit and shut down afterwards
+     */
+    public ParallelPMDAuditRunner(PMDEngine engine, SourceType sourceType, Charset charset, List<File> targetFiles,
+            int parallelism, ExecutorService executor) {
+        this(engine, sourceType, charset, targetFiles, parallelism, executor, null);
+    }
+
+    /**
+     * @param charset the files' encoding
+     * @param executor executor to run the slices on; if {@code null}, a fixed thread pool of {@code parallelism}
+     * threads is created for the audit and shut down afterwards
+     * @param sink thread-safe sink to pass violations to as the workers find them; if {@code null}, violations are
+     * collected per file and merged
+     */
+    public ParallelPMDAuditRunner(PMDEngine engine, SourceType sourceType, Charset charset, List<File> targetFiles,
+            int parallelism, ExecutorService executor, ViolationSink sink) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, was " + parallelism);
+        }
+        this.engine = engine;
+        this.sourceType = sourceType;
+        this.charset = charset;
+        this.sink = sink;
+        this.targetFiles = Collections.unmodifiableList(new ArrayList<File>(targetFiles));
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+        if (targetFiles.isEmpty()) {
+            return;
+        }
+        List<List<File>> slices = slice(targetFiles, Math.min(parallelism, targetFiles.size()));
+        LOGGER.debug("Auditing {} files in {} slices", targetFiles.size(), slices.size());
+        ExecutorService localExecutor = executor == null ? newWorkerPool("pmd", slices.size()) : executor;
+        try {
+            List<BatchPMDAuditRunner> sliceRunners = new ArrayList<BatchPMDAuditRunner>(slices.size());
+            List<Future<?>> futures = new ArrayList<Future<?>>(slices.size());
+            for (List<File> slice : slices) {
+                BatchPMDAuditRunner sliceRunner = new BatchPMDAuditRunner(engine, sourceType, charset, slice, sink);
+                sliceRunners.add(sliceRunner);
+                futures.add(localExecutor.submit(sliceRunner));
+            }
+            collectResults(sliceRunners, futures);
+        } finally {
+            if (executor == null) {
+                localExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return the violations of every file audited successfully, in the order the files were handed in; empty if
+     * violations were passed to a sink
+     */
+    public Map<File, List<IRuleViolation>> getResultsByFile() {
+        return results;
+    }
+
+    /**
+     * @return the file's violations, an empty list if it couldn't be audited
+     */
+    public List<IRuleViolation> getViolationsFor(File targetFile) {
+        List<IRuleViolation> violations = results.get(targetFile);
+        if (violations == null) {
+            return Collections.emptyList();
+        }
+        return violations;
+    }
+
+    public List<Throwable> getAuditExceptions() {
+        return auditExceptions;
+    }
+
+    public boolean hasAuditProblems() {
+        return !auditExceptions.isEmpty();
+    }
+
+    /**
+     * Merges the results of all slices, including the files a slice audited before it failed. If interrupted, the
+     * remaining slices are cancelled and the interruption is recorded as an audit problem, as results are missing.
+     */
+    private void collectResults(List<BatchPMDAuditRunner> sliceRunners, List<Future<?>> futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException ex) {
+                LOGGER.error("Audit of slice failed", ex.getCause());
+                auditExceptions.add(ex.getCause());
+            } catch (InterruptedException ex) {
+                LOGGER.debug("Interrupted while waiting for slice audits, cancelling remaining slices");
+                for (int j = i; j < futures.size(); j++) {
+                    futures.get(j).cancel(true);
+                }
+                auditExceptions.add(ex);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            results.putAll(sliceRunners.get(i).getResultsByFile());
+            auditExceptions.addAll(sliceRunners.get(i).getAuditExceptions());
+        }
+    }
+}
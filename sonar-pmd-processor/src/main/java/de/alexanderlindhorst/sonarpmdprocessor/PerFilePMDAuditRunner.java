@@ -1,16 +1,11 @@
 package de.alexanderlindhorst.sonarpmdprocessor;
 
 import java.io.File;
-import java.io.FileReader;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.List;
 
 import net.sourceforge.pmd.IRuleViolation;
-import net.sourceforge.pmd.PMD;
-import net.sourceforge.pmd.RuleContext;
-import net.sourceforge.pmd.RuleSet;
-import net.sourceforge.pmd.RuleSetFactory;
-import net.sourceforge.pmd.RuleSetNotFoundException;
-import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.SourceType;
 
 /**
@@ -18,46 +13,89 @@ import net.sourceforge.pmd.SourceType;
  */
 public class PerFilePMDAuditRunner implements Runnable {
 
-    private final RuleSet ruleSet;
-    private final RuleContext ruleContext;
-    private final PMDResultProvider resultProvider;
+    private final PMDEngine engine;
+    private final SourceType sourceType;
+    private final File file;
+    private final CharSequence text;
+    private final Charset charset;
+    private final ViolationSink sink;
+    private boolean profiling;
+    private List<IRuleViolation> violations = Collections.emptyList();
+    private RuleProfile ruleProfile;
     private Exception exception;
 
-    public PerFilePMDAuditRunner(RuleSet ruleSet, SourceType sourceType, File file) {
-        RuleSet checked = null;
-        if (ruleSet == null) {
-            try {
-                checked = new RuleSetFactory().createSingleRuleSet("rulesets/basic.xml");
-            } catch (RuleSetNotFoundException ex) {
-                exception = ex;
-            }
-        } else {
-            checked = ruleSet;
-        }
-        this.ruleSet = checked;
-        ruleContext = new RuleContext();
-        resultProvider = new PMDResultProvider();
-        ruleContext.setSourceCodeFile(file);
-        ruleContext.setSourceCodeFilename(file.getAbsolutePath());
+    /**
+     * Audits the file's content on disk decoded in the given charset, i.e. the file's encoding.
+     */
+    public PerFilePMDAuditRunner(PMDEngine engine, SourceType sourceType, File file, Charset charset) {
+        this(engine, sourceType, file, charset, null);
+    }
+
+    /**
+     * Like {@link #PerFilePMDAuditRunner(PMDEngine, SourceType, File, Charset)}, but passes violations to the sink as
+     * they're found rather than collecting them.
+     */
+    public PerFilePMDAuditRunner(PMDEngine engine, SourceType sourceType, File file, Charset charset,
+            ViolationSink sink) {
+        this(engine, sourceType, file, null, charset, sink);
+    }
+
+    /**
+     * Audits the given text instead of the file's content on disk, e.g. the unsaved content of an editor. Violations
+     * are reported for the given file.
+     */
+    public PerFilePMDAuditRunner(PMDEngine engine, SourceType sourceType, File file, CharSequence text) {
+        this(engine, sourceType, file, text, null);
+    }
+
+    /**
+     * Like {@link #PerFilePMDAuditRunner(PMDEngine, SourceType, File, CharSequence)}, but passes violations to the sink
+     * as they're found rather than collecting them.
+     */
+    public PerFilePMDAuditRunner(PMDEngine engine, SourceType sourceType, File file, CharSequence text,
+            ViolationSink sink) {
+        this(engine, sourceType, file, text, null, sink);
+    }
+
+    private PerFilePMDAuditRunner(PMDEngine engine, SourceType sourceType, File file, CharSequence text,
+            Charset charset, ViolationSink sink) {
+        this.engine = engine;
         //TODO: make this configurable
-        ruleContext.setSourceType(sourceType);
-        ruleContext.getReport().addListener(resultProvider);
+        this.sourceType = sourceType;
+        this.file = file;
+        this.text = text;
+        this.charset = charset;
+        this.sink = sink;
     }
 
     @Override
     public void run() {
-        if (hasAuditProblem()) {
-            return;
-        }
-        PMD pmd = new PMD();
         try {
-            pmd.processFile(new FileReader(ruleContext.getSourceCodeFile()), new RuleSets(ruleSet), ruleContext,
-                    ruleContext.getSourceType());
+            RuleProfiler profiler = profiling ? new RuleProfiler() : null;
+            violations = engine.audit(file, text, charset, sourceType, sink, profiler);
+            if (profiler != null) {
+                ruleProfile = profiler.getProfile();
+            }
         } catch (Exception ex) {
             exception = ex;
         }
     }
 
+    /**
+     * Makes the audit record the time spent in each rule, at the cost of PMD's rule chain optimization. Call before
+     * {@link #run()}.
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * @return the time spent in each rule, {@code null} if the audit wasn't profiled or failed
+     */
+    public RuleProfile getRuleProfile() {
+        return ruleProfile;
+    }
+
     public boolean hasAuditProblem() {
         return exception != null;
     }
@@ -66,7 +104,10 @@ public class PerFilePMDAuditRunner implements Runnable {
         return exception;
     }
 
+    /**
+     * @return the violations found, an empty list if they were passed to a sink
+     */
     public List<IRuleViolation> getViolations() {
-        return resultProvider.getViolations();
+        return violations;
     }
 }
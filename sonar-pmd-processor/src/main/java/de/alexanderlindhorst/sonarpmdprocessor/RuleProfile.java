@@ -0,0 +1,109 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent in each rule of a profiled audit, most expensive rules first.
+ *
+ * @author alindhorst
+ */
+public final class RuleProfile {
+
+    private final List<Entry> entries;
+
+    RuleProfile(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<Entry>(entries);
+        Collections.sort(sorted, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry first, Entry second) {
+                return first.nanos == second.nanos ? 0 : first.nanos > second.nanos ? -1 : 1;
+            }
+        });
+        this.entries = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return an entry per rule, most expensive rule first
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param ruleSetName name of the rule set defining the rule, e.g. "Basic Rules"; rule names are only unique per
+     * rule set
+     * @return the rule's entry, {@code null} if the rule wasn't part of the audit
+     */
+    public Entry getEntryFor(String ruleSetName, String ruleName) {
+        for (Entry entry : entries) {
+            if (entry.ruleName.equals(ruleName) && (entry.ruleSetName == null ? ruleSetName == null
+                    : entry.ruleSetName.equals(ruleSetName))) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return time spent in all rules, in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.nanos;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleProfile{" + "totalMillis=" + TimeUnit.NANOSECONDS.toMillis(getTotalNanos()) + ", entries="
+                + entries + '}';
+    }
+
+    /**
+     * Time spent in a rule and how often it was applied.
+     */
+    public static final class Entry {
+
+        private final String ruleName;
+        private final String ruleSetName;
+        private final long nanos;
+        private final int invocations;
+
+        Entry(String ruleName, String ruleSetName, long nanos, int invocations) {
+            this.ruleName = ruleName;
+            this.ruleSetName = ruleSetName;
+            this.nanos = nanos;
+            this.invocations = invocations;
+        }
+
+        public String getRuleName() {
+            return ruleName;
+        }
+
+        public String getRuleSetName() {
+            return ruleSetName;
+        }
+
+        /**
+         * @return wall time spent in the rule, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getInvocations() {
+            return invocations;
+        }
+
+        @Override
+        public String toString() {
+            return ruleName + "=" + TimeUnit.NANOSECONDS.toMicros(nanos) + "us/" + invocations;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.pmd.AbstractDelegateRule;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+
+/**
+ * Records the time spent in each rule of an audit. PMD only times rules in a global benchmark shared by all audits,
+ * hence the rules are wrapped for the audit to be profiled. Rules PMD would otherwise run in its rule chain are
+ * applied on their own instead, as the rule chain doesn't time rules separately; their timings thus show what they'd
+ * cost without the rule chain. Not thread-safe; a profiler serves one audit.
+ *
+ * @author alindhorst
+ */
+final class RuleProfiler {
+
+    private final List<ProfilingRule> profilingRules = new ArrayList<ProfilingRule>();
+
+    /**
+     * @return rule sets applying the given rule sets' rules and timing them; they must not outlive the given ones being
+     * released
+     */
+    RuleSets wrap(RuleSets ruleSets) {
+        RuleSets profiled = new RuleSets();
+        for (RuleSet ruleSet : ruleSets.getAllRuleSets()) {
+            RuleSet copy = new RuleSet();
+            copy.setName(ruleSet.getName());
+            copy.setFileName(ruleSet.getFileName());
+            copy.setDescription(ruleSet.getDescription());
+            copy.setLanguage(ruleSet.getLanguage());
+            copy.setExcludePatterns(new ArrayList<String>(ruleSet.getExcludePatterns()));
+            copy.setIncludePatterns(new ArrayList<String>(ruleSet.getIncludePatterns()));
+            for (Rule rule : ruleSet.getRules()) {
+                ProfilingRule profilingRule = new ProfilingRule(rule);
+                profilingRules.add(profilingRule);
+                copy.addRule(profilingRule);
+            }
+            profiled.addRuleSet(copy);
+        }
+        return profiled;
+    }
+
+    RuleProfile getProfile() {
+        List<RuleProfile.Entry> entries = new ArrayList<RuleProfile.Entry>(profilingRules.size());
+        for (ProfilingRule profilingRule : profilingRules) {
+            entries.add(new RuleProfile.Entry(profilingRule.getName(), profilingRule.getRuleSetName(),
+                    profilingRule.nanos, profilingRule.invocations));
+        }
+        return new RuleProfile(entries);
+    }
+
+    private static class ProfilingRule extends AbstractDelegateRule {
+
+        private long nanos;
+        private int invocations;
+
+        ProfilingRule(Rule rule) {
+            setRule(rule);
+        }
+
+        @Override
+        public boolean usesRuleChain() {
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void apply(List acus, RuleContext ruleContext) {
+            long start = System.nanoTime();
+            try {
+                super.apply(acus, ruleContext);
+            } finally {
+                nanos += System.nanoTime() - start;
+                invocations++;
+            }
+        }
+    }
+}
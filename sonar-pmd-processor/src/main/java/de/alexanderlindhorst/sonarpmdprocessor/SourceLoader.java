@@ -0,0 +1,121 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads source files for audits in one go through a file channel and decodes them in the given charset. The file is
+ * closed before the source is handed out, and the buffers are kept for the next file, so auditing many files one
+ * after another doesn't produce garbage per file. Not thread-safe; a reader handed out is valid until the next file is
+ * loaded.
+ *
+ * @author alindhorst
+ */
+final class SourceLoader {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private final CharsetDecoder decoder;
+    private ByteBuffer bytes;
+    private CharBuffer chars;
+
+    SourceLoader(Charset charset) {
+        //like a reader would do it, malformed input doesn't fail the audit
+        decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    Charset getCharset() {
+        return decoder.charset();
+    }
+
+    Reader load(File file) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be audited");
+            }
+            ByteBuffer input = byteBuffer((int) size);
+            while (input.hasRemaining() && channel.read(input) >= 0) {
+                //read until the buffer is full or the file ends
+            }
+            input.flip();
+            return new CharBufferReader(decode(input));
+        } finally {
+            stream.close();
+        }
+    }
+
+    private CharBuffer decode(ByteBuffer input) throws CharacterCodingException {
+        decoder.reset();
+        CharBuffer output = charBuffer((int) Math.ceil(input.remaining() * (double) decoder.maxCharsPerByte()));
+        CoderResult result = decoder.decode(input, output, true);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        result = decoder.flush(output);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        output.flip();
+        return output;
+    }
+
+    private ByteBuffer byteBuffer(int capacity) {
+        if (bytes == null || bytes.capacity() < capacity) {
+            bytes = ByteBuffer.allocate(Math.max(capacity, INITIAL_CAPACITY));
+        }
+        bytes.clear();
+        bytes.limit(capacity);
+        return bytes;
+    }
+
+    private CharBuffer charBuffer(int capacity) {
+        if (chars == null || chars.capacity() < capacity) {
+            chars = CharBuffer.allocate(Math.max(capacity, INITIAL_CAPACITY));
+        }
+        chars.clear();
+        return chars;
+    }
+
+    /**
+     * Reads the decoded source straight from the buffer rather than from a copy of it.
+     */
+    private static class CharBufferReader extends Reader {
+
+        private final CharBuffer buffer;
+
+        CharBufferReader(CharBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            //nothing to release, the file has been closed already
+        }
+    }
+}
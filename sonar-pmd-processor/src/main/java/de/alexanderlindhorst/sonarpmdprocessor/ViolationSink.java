@@ -0,0 +1,25 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+
+import net.sourceforge.pmd.IRuleViolation;
+
+/**
+ * Receives violations while an audit is still running, rather than all of them once it's done. Called on the auditing
+ * thread; a sink used by a {@link ParallelPMDAuditRunner} is called by all of its workers and must be thread-safe.
+ *
+ * @author alindhorst
+ */
+public interface ViolationSink {
+
+    /**
+     * Called as soon as a rule reports the violation, while the other rules are still being evaluated.
+     */
+    void violationFound(IRuleViolation violation);
+
+    /**
+     * Called once the file has been audited completely, whether there were violations or not. Not called for files
+     * that couldn't be audited.
+     */
+    void fileAudited(File file);
+}
@@ -0,0 +1,77 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.SourceType;
+
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.BROKEN_SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.DIRTY_SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.FAILING_RULE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.UTF_8;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.basicRule;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.ruleSet;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.write;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class BatchPMDAuditRunnerTest {
+
+    private static final String RULE_SET = ruleSet(basicRule("EmptyCatchBlock"), FAILING_RULE);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private PMDEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = new PMDEngine(RULE_SET, 4);
+    }
+
+    @After
+    public void tearDown() {
+        //don't leak an interruption into other tests
+        Thread.interrupted();
+    }
+
+    @Test
+    public void failingRuleDoesNotStopTheOthers() throws Exception {
+        File first = write(folder, "First.java", DIRTY_SOURCE);
+        File broken = write(folder, "Broken.java", BROKEN_SOURCE);
+        File last = write(folder, "Last.java", DIRTY_SOURCE);
+        BatchPMDAuditRunner runner = new BatchPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8,
+                Arrays.asList(first, broken, last));
+
+        runner.run();
+
+        assertThat(runner.getAuditExceptions().size(), is(1));
+        assertThat(runner.getViolationsFor(first).size(), is(1));
+        assertThat(runner.getViolationsFor(last).size(), is(1));
+        assertThat(runner.getResultsByFile().containsKey(broken), is(false));
+        //the broken file's rule sets were replaced rather than passed on to the last file
+        assertThat(engine.getRuleSetsCreated(), is(2));
+    }
+
+    @Test
+    public void interruptionIsAnAuditProblem() throws Exception {
+        File dirty = write(folder, "Dirty.java", DIRTY_SOURCE);
+        BatchPMDAuditRunner runner = new BatchPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8, Arrays.asList(dirty));
+
+        Thread.currentThread().interrupt();
+        runner.run();
+
+        assertThat(runner.hasAuditProblems(), is(true));
+        assertThat(runner.getAuditExceptions().get(0), is(instanceOf(InterruptedException.class)));
+        assertThat(runner.getResultsByFile().isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,20 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import net.sourceforge.pmd.AbstractJavaRule;
+import net.sourceforge.pmd.ast.ASTClassOrInterfaceDeclaration;
+
+/**
+ * Rule failing on classes named {@code Broken}, like a buggy rule of a Sonar profile would.
+ *
+ * @author alindhorst
+ */
+public class FailingRule extends AbstractJavaRule {
+
+    @Override
+    public Object visit(ASTClassOrInterfaceDeclaration node, Object data) {
+        if ("Broken".equals(node.getImage())) {
+            throw new IllegalStateException("rule failed on " + node.getImage());
+        }
+        return super.visit(node, data);
+    }
+}
@@ -0,0 +1,182 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.IRuleViolation;
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.SourceType;
+
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.BROKEN_SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.EMPTY_CATCH_RULE_SET;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.FAILING_RULE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.UTF_8;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.basicRule;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.ruleSet;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.write;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class PMDEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final File file = new File("Foo.java");
+    private PMDEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = new PMDEngine(null, 2);
+    }
+
+    @Test
+    public void basicRulesAreUsedWithoutRuleSet() throws Exception {
+        List<IRuleViolation> violations = engine.audit(file, SOURCE, SourceType.JAVA_16);
+
+        assertThat(ruleNamesOf(violations).contains("EmptyCatchBlock"), is(true));
+        assertThat(ruleNamesOf(violations).contains("EmptyTryBlock"), is(true));
+    }
+
+    @Test
+    public void givenRuleSetIsUsed() throws Exception {
+        List<IRuleViolation> violations = new PMDEngine(EMPTY_CATCH_RULE_SET, 2).audit(file, SOURCE,
+                SourceType.JAVA_16);
+
+        assertThat(ruleNamesOf(violations), is(singleton("EmptyCatchBlock")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fileContentCantBeAuditedWithoutCharset() throws Exception {
+        engine.audit(file, (CharSequence) null, SourceType.JAVA_16);
+    }
+
+    @Test
+    public void ruleSetsAreReusedByConsecutiveAudits() throws Exception {
+        engine.audit(file, SOURCE, SourceType.JAVA_16);
+        engine.audit(file, SOURCE, SourceType.JAVA_16);
+
+        assertThat(engine.getRuleSetsCreated(), is(1));
+        assertThat(engine.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void sourceLoadersAreReusedPerCharset() throws Exception {
+        File source = write(folder, "Foo.java", SOURCE);
+
+        engine.audit(source, UTF_8, SourceType.JAVA_16);
+        List<IRuleViolation> violations = engine.audit(source, UTF_8, SourceType.JAVA_16);
+        assertThat(engine.getSourceLoadersCreated(), is(1));
+        engine.audit(source, Charset.forName("ISO-8859-1"), SourceType.JAVA_16);
+
+        assertThat(ruleNamesOf(violations).contains("EmptyCatchBlock"), is(true));
+        assertThat(engine.getSourceLoadersCreated(), is(2));
+    }
+
+    @Test
+    public void ruleSetsOfFailedAuditAreDropped() throws Exception {
+        PMDEngine failing = new PMDEngine(ruleSet(basicRule("EmptyCatchBlock"), FAILING_RULE), 2);
+        try {
+            failing.audit(new File("Broken.java"), BROKEN_SOURCE, SourceType.JAVA_16);
+            fail("rule didn't fail");
+        } catch (PMDException ex) {
+            assertThat(failing.getIdleCount(), is(0));
+        }
+
+        List<IRuleViolation> violations = failing.audit(file, SOURCE, SourceType.JAVA_16);
+
+        assertThat(ruleNamesOf(violations), is(singleton("EmptyCatchBlock")));
+        assertThat(failing.getRuleSetsCreated(), is(2));
+        assertThat(failing.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void concurrentAuditsYieldSameResults() throws Exception {
+        final int expected = engine.audit(file, SOURCE, SourceType.JAVA_16).size();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return engine.audit(file, SOURCE, SourceType.JAVA_16).size();
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get(), is(expected));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(engine.getIdleCount() <= 2, is(true));
+    }
+
+    @Test
+    public void violationsArePassedToSinkAsFound() throws Exception {
+        final List<IRuleViolation> found = new ArrayList<IRuleViolation>();
+        final List<File> audited = new ArrayList<File>();
+
+        List<IRuleViolation> returned = new PMDEngine(EMPTY_CATCH_RULE_SET, 2).audit(file, SOURCE, SourceType.JAVA_16,
+                new ViolationSink() {
+                    @Override
+                    public void violationFound(IRuleViolation violation) {
+                        assertThat(audited.isEmpty(), is(true));
+                        found.add(violation);
+                    }
+
+                    @Override
+                    public void fileAudited(File auditedFile) {
+                        audited.add(auditedFile);
+                    }
+                });
+
+        assertThat(returned.isEmpty(), is(true));
+        assertThat(ruleNamesOf(found), is(singleton("EmptyCatchBlock")));
+        assertThat(audited, is(Arrays.asList(file)));
+    }
+
+    @Test
+    public void enginesAreKeptPerRuleSet() throws Exception {
+        PMDEngine fallback = PMDEngine.forRuleSet(null);
+
+        assertThat(PMDEngine.forRuleSet(null), is(sameInstance(fallback)));
+        PMDEngine emptyCatch = PMDEngine.forRuleSet(EMPTY_CATCH_RULE_SET);
+        assertThat(PMDEngine.forRuleSet(EMPTY_CATCH_RULE_SET), is(sameInstance(emptyCatch)));
+        assertThat(PMDEngine.forRuleSet(EMPTY_CATCH_RULE_SET), is(not(sameInstance(fallback))));
+    }
+
+    private static List<String> ruleNamesOf(List<IRuleViolation> violations) {
+        List<String> ruleNames = new ArrayList<String>();
+        for (IRuleViolation violation : violations) {
+            ruleNames.add(violation.getRule().getName());
+        }
+        return ruleNames;
+    }
+
+    private static List<String> singleton(String ruleName) {
+        List<String> ruleNames = new ArrayList<String>();
+        ruleNames.add(ruleName);
+        return ruleNames;
+    }
+}
@@ -0,0 +1,86 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Sources and rule sets shared by the audit tests.
+ *
+ * @author alindhorst
+ */
+final class PMDFixtures {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Violates EmptyTryBlock and EmptyCatchBlock.
+     */
+    static final String SOURCE = "public class Foo {\n"
+            + "    void bar() {\n"
+            + "        try {\n"
+            + "        } catch (Exception e) {\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+    /**
+     * Violates EmptyCatchBlock only.
+     */
+    static final String DIRTY_SOURCE = "public class Dirty {\n"
+            + "    void bar() {\n"
+            + "        try {\n"
+            + "            bar();\n"
+            + "        } catch (Exception e) {\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+    static final String CLEAN_SOURCE = "public class Clean {\n"
+            + "}\n";
+    /**
+     * Fails {@link #FAILING_RULE}.
+     */
+    static final String BROKEN_SOURCE = "public class Broken {\n"
+            + "}\n";
+    static final String EMPTY_CATCH_RULE_SET = ruleSet(basicRule("EmptyCatchBlock"));
+    static final String FAILING_RULE = "<rule name=\"Failing\" message=\"failing\" class=\""
+            + FailingRule.class.getName() + "\"><description>failing</description><priority>3</priority></rule>";
+
+    private PMDFixtures() {
+        //utility class
+    }
+
+    /**
+     * @return a rule set named "test" holding the given rule elements
+     */
+    static String ruleSet(String... rules) {
+        StringBuilder builder = new StringBuilder("<?xml version=\"1.0\"?>\n"
+                + "<ruleset name=\"test\" xmlns=\"http://pmd.sf.net/ruleset/1.0.0\">\n"
+                + "    <description>test</description>\n");
+        for (String rule : rules) {
+            builder.append("    ").append(rule).append('\n');
+        }
+        return builder.append("</ruleset>\n").toString();
+    }
+
+    /**
+     * @return a reference to a rule of PMD's basic rules
+     */
+    static String basicRule(String name) {
+        return "<rule ref=\"rulesets/basic.xml/" + name + "\"/>";
+    }
+
+    static File write(TemporaryFolder folder, String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
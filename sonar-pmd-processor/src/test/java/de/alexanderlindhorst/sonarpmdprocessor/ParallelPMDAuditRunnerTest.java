@@ -0,0 +1,126 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.IRuleViolation;
+import net.sourceforge.pmd.SourceType;
+
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.CLEAN_SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.DIRTY_SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.EMPTY_CATCH_RULE_SET;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.UTF_8;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.write;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class ParallelPMDAuditRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private PMDEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = new PMDEngine(EMPTY_CATCH_RULE_SET, 4);
+    }
+
+    @Test
+    public void resultsOfAllSlicesAreMerged() throws Exception {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 5; i++) {
+            files.add(write(folder, "Dirty" + i + ".java", DIRTY_SOURCE));
+            files.add(write(folder, "Clean" + i + ".java", CLEAN_SOURCE));
+        }
+        ParallelPMDAuditRunner runner = new ParallelPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8, files, 3);
+
+        runner.run();
+
+        assertThat(runner.hasAuditProblems(), is(false));
+        assertThat(new ArrayList<File>(runner.getResultsByFile().keySet()), is(files));
+        for (File file : files) {
+            List<IRuleViolation> violations = runner.getViolationsFor(file);
+            assertThat(violations.size(), is(file.getName().startsWith("Dirty") ? 1 : 0));
+            for (IRuleViolation violation : violations) {
+                assertThat(violation.getFilename(), is(file.getAbsolutePath()));
+                assertThat(violation.getRule().getName(), is("EmptyCatchBlock"));
+            }
+        }
+    }
+
+    @Test
+    public void unreadableFileDoesNotStopTheOthers() throws Exception {
+        File missing = new File(folder.getRoot(), "Missing.java");
+        File dirty = write(folder, "Dirty.java", DIRTY_SOURCE);
+        ParallelPMDAuditRunner runner = new ParallelPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8,
+                Arrays.asList(missing, dirty), 1);
+
+        runner.run();
+
+        assertThat(runner.hasAuditProblems(), is(true));
+        assertThat(runner.getViolationsFor(missing).isEmpty(), is(true));
+        assertThat(runner.getViolationsFor(dirty).size(), is(1));
+    }
+
+    @Test
+    public void ruleSetsAreNotSharedByWorkers() throws Exception {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 8; i++) {
+            files.add(write(folder, "Dirty" + i + ".java", DIRTY_SOURCE));
+        }
+
+        new ParallelPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8, files, 2).run();
+
+        assertThat(engine.getRuleSetsCreated() <= 2, is(true));
+        assertThat(engine.getIdleCount(), is(engine.getRuleSetsCreated()));
+    }
+
+    @Test
+    public void violationsOfAllWorkersArePassedToSink() throws Exception {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 6; i++) {
+            files.add(write(folder, "Dirty" + i + ".java", DIRTY_SOURCE));
+        }
+        final List<String> found = Collections.synchronizedList(new ArrayList<String>());
+        final List<File> audited = Collections.synchronizedList(new ArrayList<File>());
+        ParallelPMDAuditRunner runner = new ParallelPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8, files, 3, null,
+                new ViolationSink() {
+                    @Override
+                    public void violationFound(IRuleViolation violation) {
+                        found.add(violation.getFilename());
+                    }
+
+                    @Override
+                    public void fileAudited(File file) {
+                        audited.add(file);
+                    }
+                });
+
+        runner.run();
+
+        assertThat(runner.getResultsByFile().isEmpty(), is(true));
+        assertThat(new HashSet<File>(audited), is(new HashSet<File>(files)));
+        assertThat(found.size(), is(files.size()));
+        for (File file : files) {
+            assertThat(found.contains(file.getAbsolutePath()), is(true));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelismMustBePositive() {
+        new ParallelPMDAuditRunner(engine, SourceType.JAVA_16, UTF_8, new ArrayList<File>(), 0);
+    }
+}
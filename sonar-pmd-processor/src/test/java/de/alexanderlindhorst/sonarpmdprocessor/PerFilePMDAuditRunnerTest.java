@@ -0,0 +1,134 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceType;
+
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.SOURCE;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.basicRule;
+import static de.alexanderlindhorst.sonarpmdprocessor.PMDFixtures.ruleSet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class PerFilePMDAuditRunnerTest {
+
+    private static final String BASIC_RULES = "Basic Rules";
+    private static final String RULE_SET = ruleSet(basicRule("EmptyCatchBlock"), basicRule("EmptyTryBlock"),
+            basicRule("EmptyFinallyBlock"));
+    private final File file = new File("Foo.java");
+    private PMDEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = new PMDEngine(RULE_SET, 2);
+    }
+
+    @Test
+    public void auditIsNotProfiledByDefault() {
+        PerFilePMDAuditRunner runner = new PerFilePMDAuditRunner(engine, SourceType.JAVA_16, file, SOURCE);
+
+        runner.run();
+
+        assertThat(runner.getViolations().size(), is(2));
+        assertThat(runner.getRuleProfile(), is(nullValue()));
+    }
+
+    @Test
+    public void profiledAuditTimesEveryRule() {
+        PerFilePMDAuditRunner runner = new PerFilePMDAuditRunner(engine, SourceType.JAVA_16, file, SOURCE);
+        runner.setProfiling(true);
+
+        runner.run();
+
+        assertThat(runner.hasAuditProblem(), is(false));
+        assertThat(runner.getViolations().size(), is(2));
+        RuleProfile profile = runner.getRuleProfile();
+        assertThat(profile.getEntries().size(), is(3));
+        long total = 0;
+        for (RuleProfile.Entry entry : profile.getEntries()) {
+            assertThat(entry.getInvocations(), is(1));
+            total += entry.getNanos();
+        }
+        assertThat(profile.getTotalNanos(), is(total));
+        assertThat(profile.getEntryFor(BASIC_RULES, "EmptyFinallyBlock"), is(notNullValue()));
+        assertThat(profile.getEntryFor("other", "EmptyFinallyBlock"), is(nullValue()));
+        assertThat(profile.getEntryFor(BASIC_RULES, "NoSuchRule"), is(nullValue()));
+    }
+
+    @Test
+    public void ruleChainRulesAreProfiledWithoutLosingViolations() throws Exception {
+        String source = "public class Foo {\n"
+                + "    Boolean bar() {\n"
+                + "        try {\n"
+                + "            bar();\n"
+                + "        } catch (Exception e) {\n"
+                + "        }\n"
+                + "        return new Boolean(true);\n"
+                + "    }\n"
+                + "}\n";
+        //an XPath rule run in PMD's rule chain and a rule visiting the AST on its own
+        PMDEngine mixed = new PMDEngine(ruleSet(basicRule("EmptyCatchBlock"), basicRule("BooleanInstantiation")), 1);
+        RuleSets ruleSets = mixed.borrow();
+        assertThat(ruleNamed("EmptyCatchBlock", ruleSets).usesRuleChain(), is(true));
+        mixed.release(ruleSets);
+        PerFilePMDAuditRunner plain = new PerFilePMDAuditRunner(mixed, SourceType.JAVA_16, file, source);
+        plain.run();
+        PerFilePMDAuditRunner profiled = new PerFilePMDAuditRunner(mixed, SourceType.JAVA_16, file, source);
+        profiled.setProfiling(true);
+
+        profiled.run();
+
+        assertThat(plain.getViolations().size(), is(2));
+        assertThat(profiled.getViolations().size(), is(2));
+        RuleProfile profile = profiled.getRuleProfile();
+        assertThat(profile.getEntryFor(BASIC_RULES, "EmptyCatchBlock").getInvocations(), is(1));
+        assertThat(profile.getEntryFor(BASIC_RULES, "BooleanInstantiation").getInvocations(), is(1));
+    }
+
+    @Test
+    public void entriesAreOrderedByTimeSpent() {
+        PerFilePMDAuditRunner runner = new PerFilePMDAuditRunner(engine, SourceType.JAVA_16, file, SOURCE);
+        runner.setProfiling(true);
+
+        runner.run();
+
+        long previous = Long.MAX_VALUE;
+        for (RuleProfile.Entry entry : runner.getRuleProfile().getEntries()) {
+            assertThat(entry.getNanos() <= previous, is(true));
+            previous = entry.getNanos();
+        }
+    }
+
+    @Test
+    public void profilingDoesNotKeepWrappedRulesInPool() {
+        PerFilePMDAuditRunner runner = new PerFilePMDAuditRunner(engine, SourceType.JAVA_16, file, SOURCE);
+        runner.setProfiling(true);
+        runner.run();
+
+        PerFilePMDAuditRunner plain = new PerFilePMDAuditRunner(engine, SourceType.JAVA_16, file, SOURCE);
+        plain.run();
+
+        assertThat(engine.getRuleSetsCreated(), is(1));
+        assertThat(plain.getViolations().size(), is(2));
+    }
+
+    private static Rule ruleNamed(String name, RuleSets ruleSets) {
+        for (Rule rule : ruleSets.getAllRules()) {
+            if (rule.getName().equals(name)) {
+                return rule;
+            }
+        }
+        throw new AssertionError("no rule " + name);
+    }
+}
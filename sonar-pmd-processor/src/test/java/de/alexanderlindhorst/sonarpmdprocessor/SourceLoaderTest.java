@@ -0,0 +1,84 @@
+package de.alexanderlindhorst.sonarpmdprocessor;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author alindhorst
+ */
+public class SourceLoaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sourceIsDecodedInGivenCharset() throws Exception {
+        String source = "class Gr\u00fc\u00dfe {}";
+        File utf8 = write("Utf8.java", source.getBytes(UTF_8));
+        File latin1 = write("Latin1.java", source.getBytes(ISO_8859_1));
+
+        assertThat(read(new SourceLoader(UTF_8).load(utf8)), is(source));
+        assertThat(read(new SourceLoader(ISO_8859_1).load(latin1)), is(source));
+    }
+
+    @Test
+    public void buffersAreReusedForFilesOfAnySize() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            large.append("// line ").append(i).append('\n');
+        }
+        SourceLoader loader = new SourceLoader(UTF_8);
+
+        assertThat(read(loader.load(write("Large.java", large.toString().getBytes(UTF_8)))), is(large.toString()));
+        assertThat(read(loader.load(write("Small.java", "class Small {}".getBytes(UTF_8)))), is("class Small {}"));
+        assertThat(read(loader.load(write("Empty.java", new byte[0]))), is(""));
+    }
+
+    @Test
+    public void malformedInputIsReplaced() throws Exception {
+        File file = write("Malformed.java", new byte[]{'a', (byte) 0xC3, 'b'});
+
+        assertThat(read(new SourceLoader(UTF_8).load(file)), is("a\ufffdb"));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingFileFails() throws Exception {
+        new SourceLoader(UTF_8).load(new File(folder.getRoot(), "Missing.java"));
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = folder.newFile(name);
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(content);
+        } finally {
+            stream.close();
+        }
+        return file;
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[100];
+        int count;
+        while ((count = reader.read(buffer, 0, buffer.length)) >= 0) {
+            builder.append(buffer, 0, count);
+        }
+        reader.close();
+        return builder.toString();
+    }
+}